@@ -0,0 +1,237 @@
+package com.example.benchmark;
+
+import com.example.util.JFRUtil;
+import com.example.util.JFRVirtualThreadMetrics;
+import com.example.util.LogHistogram;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Measures what JFR costs for a fixed virtual thread workload under several profiles:
+ *
+ *  - none:          no recording (baseline)
+ *  - default:       the JDK "default" profile
+ *  - jfrutil:       the settings of {@link JFRUtil#startVirtualThreadRecording()}
+ *                   (VirtualThreadStart/End with stack traces, threshold 0)
+ *  - virtual-threads.jfc / virtual-threads-low-overhead.jfc from jfr-config
+ *  - metrics-bridge: {@link JFRVirtualThreadMetrics} streaming into a SimpleMeterRegistry
+ *    (its MB/minute is 0, the stream is consumed in-process)
+ *
+ * Each task parks briefly, burns a little CPU and occasionally enters a contended
+ * monitor, which exercises the lifecycle, park, monitor and sampling events.
+ * For every profile the benchmark reports throughput (virtual threads per second),
+ * the penalty against "none", submit-to-completion latency percentiles and the
+ * recording size per minute of run time.
+ *
+ * Usage: JFRProfileOverheadBenchmark [tasksPerRound=200000] [rounds=3]
+ * Note: the jfrutil profile goes through JFRUtil, which clears old .jfr files in jfr-recordings.
+ */
+public class JFRProfileOverheadBenchmark {
+
+    private static final String[] JFC_PROFILES = {
+            "jfr-config/virtual-threads.jfc",
+            "jfr-config/virtual-threads-low-overhead.jfc"
+    };
+    private static final Object SHARED_MONITOR = new Object();
+
+    public static void main(String[] args) throws Exception {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        System.out.println("Java Version: " + System.getProperty("java.version"));
+        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+        System.out.printf("Tasks per round: %,d | Rounds per profile: %d%n", tasks, rounds);
+
+        System.out.println("\n🔥 Warming up...");
+        runWorkload(tasks);
+        runWorkload(tasks);
+
+        Map<String, ProfileResult> results = new LinkedHashMap<>();
+        results.put("none", measure("none", tasks, rounds, noRecording()));
+        results.put("default", measure("default", tasks, rounds,
+                recording(() -> new Recording(Configuration.getConfiguration("default")))));
+        results.put("jfrutil", measure("jfrutil", tasks, rounds, jfrUtilRecording()));
+        for (String jfc : JFC_PROFILES) {
+            String name = Paths.get(jfc).getFileName().toString();
+            results.put(name, measure(name, tasks, rounds,
+                    recording(() -> new Recording(Configuration.create(Paths.get(jfc))))));
+        }
+        results.put("metrics-bridge", measure("metrics-bridge", tasks, rounds, metricsBridge()));
+
+        printResults(results);
+    }
+
+    // ======================
+    // Measurement
+    // ======================
+
+    private static ProfileResult measure(String name, int tasks, int rounds, Profile profile)
+            throws Exception {
+        System.out.println("\n▶ Profile: " + name);
+        List<Double> throughputs = new ArrayList<>();
+        LogHistogram latencies = new LogHistogram();
+        long totalBytes = 0;
+        long totalNanos = 0;
+
+        for (int round = 0; round < rounds; round++) {
+            profile.start();
+            RoundResult result = runWorkload(tasks);
+            totalBytes += profile.stopAndMeasure();
+
+            throughputs.add(result.throughput());
+            latencies.merge(result.latencies());
+            totalNanos += result.elapsedNanos();
+            System.out.printf("  round %d: %,.0f threads/s%n", round + 1, result.throughput());
+        }
+
+        throughputs.sort(Double::compare);
+        double median = throughputs.get(throughputs.size() / 2);
+        double minutes = totalNanos / 60_000_000_000.0;
+        return new ProfileResult(median, latencies, minutes > 0 ? totalBytes / minutes : 0);
+    }
+
+    private static Profile noRecording() {
+        return new Profile() {
+            public void start() {}
+            public long stopAndMeasure() { return 0; }
+        };
+    }
+
+    private static Profile recording(RecordingFactory factory) {
+        return new Profile() {
+            private Recording recording;
+
+            public void start() throws Exception {
+                recording = factory.create();
+                recording.start();
+            }
+
+            // Stops the recording, dumps it to a temp file and returns its size in bytes
+            public long stopAndMeasure() throws IOException {
+                recording.stop();
+                Path file = Files.createTempFile("jfr-overhead-", ".jfr");
+                try {
+                    recording.dump(file);
+                    return Files.size(file);
+                } finally {
+                    recording.close();
+                    Files.deleteIfExists(file);
+                }
+            }
+        };
+    }
+
+    // Goes through JFRUtil itself, so the measured settings stay in sync with it
+    private static Profile jfrUtilRecording() {
+        return new Profile() {
+            public void start() {
+                JFRUtil.startVirtualThreadRecording("OverheadBenchmark");
+            }
+
+            public long stopAndMeasure() throws IOException {
+                Path tempDir = Files.createTempDirectory("jfr-overhead-");
+                Path file = JFRUtil.stopRecording(tempDir.toString());
+                if (file == null) return 0;
+                long size = Files.size(file);
+                Files.deleteIfExists(file);
+                Files.deleteIfExists(tempDir);
+                return size;
+            }
+        };
+    }
+
+    // The JFR-to-Micrometer bridge streams in-process, so there is no file to measure
+    private static Profile metricsBridge() {
+        return new Profile() {
+            private JFRVirtualThreadMetrics metrics;
+
+            public void start() {
+                metrics = new JFRVirtualThreadMetrics(new SimpleMeterRegistry());
+                metrics.startJfrStream();
+            }
+
+            public long stopAndMeasure() {
+                metrics.stop();
+                return 0;
+            }
+        };
+    }
+
+    private static RoundResult runWorkload(int tasks) throws InterruptedException {
+        long[] latencyNanos = new long[tasks];
+        CountDownLatch done = new CountDownLatch(tasks);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < tasks; i++) {
+            final int taskId = i;
+            final long submitted = System.nanoTime();
+            Thread.ofVirtual().start(() -> {
+                LockSupport.parkNanos(50_000); // short park -> unmount/remount
+                double sink = 0;
+                for (int k = 0; k < 500; k++) sink += Math.sqrt(k);
+                if (taskId % 100 == 0) {
+                    synchronized (SHARED_MONITOR) {
+                        sink += taskId;
+                    }
+                }
+                if (sink == -1) System.out.println(sink);
+                latencyNanos[taskId] = System.nanoTime() - submitted;
+                done.countDown();
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        LogHistogram histogram = new LogHistogram();
+        for (long latency : latencyNanos) histogram.record(latency);
+        return new RoundResult(tasks / (elapsed / 1_000_000_000.0), elapsed, histogram);
+    }
+
+    // ======================
+    // Reporting
+    // ======================
+
+    private static void printResults(Map<String, ProfileResult> results) {
+        double baseline = results.get("none").throughput();
+        System.out.println("\n📊 JFR Profile Overhead");
+        System.out.println("========================");
+        System.out.printf("%-38s %14s %9s %10s %10s %12s%n",
+                "Profile", "threads/s", "penalty", "p50 (ms)", "p99 (ms)", "MB/minute");
+        results.forEach((name, r) -> System.out.printf("%-38s %,14.0f %8.1f%% %10.3f %10.3f %12.2f%n",
+                name,
+                r.throughput(),
+                (1 - r.throughput() / baseline) * 100,
+                r.latencies().percentile(50) / 1_000_000.0,
+                r.latencies().percentile(99) / 1_000_000.0,
+                r.bytesPerMinute() / (1024.0 * 1024.0)));
+        System.out.println("\nPenalty is the median throughput loss against \"none\"; p50/p99 are submit-to-completion.");
+    }
+
+    private interface Profile {
+        void start() throws Exception;
+
+        long stopAndMeasure() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface RecordingFactory {
+        Recording create() throws IOException, ParseException;
+    }
+
+    private record RoundResult(double throughput, long elapsedNanos, LogHistogram latencies) {}
+
+    private record ProfileResult(double throughput, LogHistogram latencies, double bytesPerMinute) {}
+}
@@ -0,0 +1,303 @@
+package com.example.benchmark;
+
+import com.example.pinning.VirtualThreadPinning;
+import com.example.util.LogHistogram;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Finds where pinning starts to hurt: every task blocks for the same time, but a fraction of
+ * them does it inside {@code synchronized} (pinning the carrier) instead of under a ReentrantLock
+ * ({@link VirtualThreadPinning#blockWithLock}). Each task uses its own monitor/lock, so the
+ * curves show the cost of pinning alone, not lock contention.
+ *
+ * How the pinned tasks block matters on JDK 21:
+ *  - sleep: Thread.sleep inside synchronized ({@link VirtualThreadPinning#blockInSynchronized}).
+ *           The carrier is simply held; the scheduler never compensates, so maxPoolSize has no effect.
+ *  - wait:  Object.wait inside synchronized ({@link VirtualThreadPinning#blockInSynchronizedWait}).
+ *           Also pinned, but the scheduler adds a carrier for the duration, up to maxPoolSize.
+ *
+ * The grid varies
+ *  - the pinned fraction of tasks,
+ *  - the blocking time and kind,
+ *  - jdk.virtualThreadScheduler.parallelism and jdk.virtualThreadScheduler.maxPoolSize,
+ * and runs every point in a forked JVM, since the scheduler settings are read once at startup.
+ * Points with maxPoolSize below parallelism are skipped: JDK 21 lowers parallelism to maxPoolSize,
+ * so they would be mislabelled. The same points are measured with ReentrantLock ("reentrant") as
+ * the baseline.
+ *
+ * Results go to pinning-collapse-results.csv, followed by ASCII throughput and p99 latency
+ * curves per (blocking, block, parallelism, maxPoolSize) with the fraction where throughput collapses.
+ *
+ * Usage: PinningCollapseBenchmark [tasks=2000] [blockMillis=1,10] [parallelism=1,2,4]
+ *                                 [maxPoolSize=4,256] [fractions=0,0.01,0.05,0.1,0.25,0.5,1]
+ *                                 [blocking=sleep,wait]
+ */
+public class PinningCollapseBenchmark {
+
+    private static final String RUN_FLAG = "--run";
+    private static final String RESULT_PREFIX = "RESULT,";
+    private static final Path CSV_FILE = Paths.get("pinning-collapse-results.csv");
+    private static final long CHILD_TIMEOUT_MINUTES = 10;
+    // Synchronized throughput below this share of the ReentrantLock baseline counts as collapsed
+    private static final double COLLAPSE_RATIO = 0.5;
+    private static final int BAR_WIDTH = 40;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals(RUN_FLAG)) {
+            runChild(args);
+            return;
+        }
+
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        long[] blockMillis = parseLongs(args.length > 1 ? args[1] : "1,10");
+        long[] parallelisms = parseLongs(args.length > 2 ? args[2] : "1,2,4");
+        // A tight cap next to the JDK default, so the wait curves show how far compensation goes
+        long[] maxPoolSizes = parseLongs(args.length > 3 ? args[3] : "4,256");
+        double[] fractions = Arrays.stream((args.length > 4 ? args[4] : "0,0.01,0.05,0.1,0.25,0.5,1").split(","))
+                .mapToDouble(Double::parseDouble).toArray();
+        String[] blockings = (args.length > 5 ? args[5] : "sleep,wait").split(",");
+        for (String blocking : blockings) {
+            if (!blocking.equals("sleep") && !blocking.equals("wait")) {
+                throw new IllegalArgumentException("Unknown blocking kind: " + blocking + " (expected sleep or wait)");
+            }
+        }
+
+        System.out.println("Java Version: " + System.getProperty("java.version"));
+        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+        System.out.printf("Tasks per point: %,d | Block: %s ms (%s) | Parallelism: %s | Max pool: %s | Fractions: %s%n",
+                tasks, Arrays.toString(blockMillis), String.join(", ", blockings), Arrays.toString(parallelisms),
+                Arrays.toString(maxPoolSizes), Arrays.toString(fractions));
+
+        List<Point> points = new ArrayList<>();
+        for (String blocking : blockings) {
+            for (long block : blockMillis) {
+                for (long parallelism : parallelisms) {
+                    for (long maxPoolSize : maxPoolSizes) {
+                        if (maxPoolSize < parallelism) {
+                            System.out.printf("⏭️ Skipping parallelism=%d maxPoolSize=%d: JDK 21 would lower parallelism to %d%n",
+                                    parallelism, maxPoolSize, maxPoolSize);
+                            continue;
+                        }
+                        for (String mode : new String[]{"synchronized", "reentrant"}) {
+                            for (double fraction : fractions) {
+                                points.add(runPoint(mode, blocking, fraction, block, (int) parallelism, (int) maxPoolSize, tasks));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        writeCsv(points);
+        printCurves(points);
+    }
+
+    // ======================
+    // Forked JVM per point
+    // ======================
+
+    private static Point runPoint(String mode, String blocking, double fraction, long blockMillis, int parallelism,
+                                  int maxPoolSize, int tasks) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.addAll(forwardedJvmArguments());
+        command.add("-Djdk.virtualThreadScheduler.parallelism=" + parallelism);
+        command.add("-Djdk.virtualThreadScheduler.maxPoolSize=" + maxPoolSize);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(PinningCollapseBenchmark.class.getName());
+        command.add(RUN_FLAG);
+        command.add(mode);
+        command.add(blocking);
+        command.add(Double.toString(fraction));
+        command.add(Long.toString(blockMillis));
+        command.add(Integer.toString(tasks));
+
+        System.out.printf("▶ %-12s %-5s fraction=%-5s block=%dms parallelism=%d maxPoolSize=%d ... ",
+                mode, blocking, fraction, blockMillis, parallelism, maxPoolSize);
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+
+        // Drain the output on its own thread, so a hung child cannot block us past the timeout
+        AtomicReference<String> result = new AtomicReference<>();
+        Thread reader = Thread.ofPlatform().daemon().name("pinning-collapse-output").start(() -> {
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.startsWith(RESULT_PREFIX)) result.set(line);
+                }
+            } catch (IOException e) {
+                // Stream closed when the child was killed; the missing result is reported below
+            }
+        });
+        boolean finished = process.waitFor(CHILD_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        if (!finished) process.destroyForcibly();
+        reader.join(5_000); // the pipe closes once the child is gone
+        if (!finished || result.get() == null) {
+            System.out.println(finished ? "❌ no result" : "❌ timed out after " + CHILD_TIMEOUT_MINUTES + " min");
+            return new Point(mode, blocking, fraction, blockMillis, parallelism, maxPoolSize, tasks,
+                    Double.NaN, Double.NaN, Double.NaN);
+        }
+
+        String[] fields = result.get().substring(RESULT_PREFIX.length()).split(",");
+        Point point = new Point(mode, blocking, fraction, blockMillis, parallelism, maxPoolSize, tasks,
+                Double.parseDouble(fields[0]), Long.parseLong(fields[1]) / 1_000_000.0,
+                Long.parseLong(fields[2]) / 1_000_000.0);
+        System.out.printf("%,.0f tasks/s, p99 %.1f ms%n", point.throughput(), point.p99Millis());
+        return point;
+    }
+
+    // Keeps flags such as --enable-preview, drops agents/recordings and the scheduler settings we override
+    private static List<String> forwardedJvmArguments() {
+        List<String> forwarded = new ArrayList<>();
+        for (String arg : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (arg.startsWith("-agentlib") || arg.startsWith("-javaagent")
+                    || arg.startsWith("-XX:StartFlightRecording")
+                    || arg.startsWith("-Djdk.virtualThreadScheduler.")) {
+                continue;
+            }
+            forwarded.add(arg);
+        }
+        return forwarded;
+    }
+
+    // Runs one point inside the forked JVM and prints a single RESULT line
+    private static void runChild(String[] args) throws InterruptedException {
+        String mode = args[1];
+        String blocking = args[2];
+        double fraction = Double.parseDouble(args[3]);
+        long blockMillis = Long.parseLong(args[4]);
+        int tasks = Integer.parseInt(args[5]);
+
+        // Warm-up with a small batch so class loading and JIT do not land in the measurement
+        runWorkload(mode, blocking, fraction, blockMillis, Math.min(tasks, 200), new LogHistogram());
+        LogHistogram latencies = new LogHistogram();
+        double throughput = runWorkload(mode, blocking, fraction, blockMillis, tasks, latencies);
+        System.out.println(RESULT_PREFIX + throughput + "," + latencies.percentile(50) + "," + latencies.percentile(99));
+    }
+
+    private static double runWorkload(String mode, String blocking, double fraction, long blockMillis, int tasks,
+                                      LogHistogram latencies) throws InterruptedException {
+        boolean pinning = mode.equals("synchronized");
+        boolean waiting = blocking.equals("wait");
+        long[] latencyNanos = new long[tasks];
+        CountDownLatch done = new CountDownLatch(tasks);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < tasks; i++) {
+            final int taskId = i;
+            // Spreads the locked tasks evenly instead of bunching them at the start
+            final boolean locked = (long) ((taskId + 1) * fraction) > (long) (taskId * fraction);
+            final long submitted = System.nanoTime();
+            Thread.ofVirtual().start(() -> {
+                if (!locked) {
+                    VirtualThreadPinning.blockWithoutLock(blockMillis);
+                } else if (pinning && waiting) {
+                    VirtualThreadPinning.blockInSynchronizedWait(new Object(), blockMillis);
+                } else if (pinning) {
+                    VirtualThreadPinning.blockInSynchronized(new Object(), blockMillis);
+                } else {
+                    VirtualThreadPinning.blockWithLock(new ReentrantLock(), blockMillis);
+                }
+                latencyNanos[taskId] = System.nanoTime() - submitted;
+                done.countDown();
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        for (long latency : latencyNanos) latencies.record(latency);
+        return tasks / (elapsed / 1_000_000_000.0);
+    }
+
+    // ======================
+    // Reporting
+    // ======================
+
+    private static void writeCsv(List<Point> points) {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(CSV_FILE))) {
+            out.println("mode,blocking,pinnedFraction,blockMillis,parallelism,maxPoolSize,tasks,throughput,p50Millis,p99Millis");
+            for (Point p : points) {
+                out.printf("%s,%s,%s,%d,%d,%d,%d,%.1f,%.3f,%.3f%n", p.mode(), p.blocking(), p.fraction(), p.blockMillis(),
+                        p.parallelism(), p.maxPoolSize(), p.tasks(), p.throughput(), p.p50Millis(), p.p99Millis());
+            }
+            System.out.println("\n📁 Results written to: " + CSV_FILE.toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("❌ Failed to write results: " + e.getMessage());
+        }
+    }
+
+    private static void printCurves(List<Point> points) {
+        // Group by (blocking, block, parallelism, maxPoolSize), keeping grid order
+        Map<String, List<Point>> groups = new LinkedHashMap<>();
+        for (Point p : points) {
+            String key = String.format("blocking=%s block=%dms parallelism=%d maxPoolSize=%d",
+                    p.blocking(), p.blockMillis(), p.parallelism(), p.maxPoolSize());
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(p);
+        }
+
+        System.out.println("\n📊 Pinning Throughput Collapse (S = synchronized, R = ReentrantLock)");
+        System.out.println("====================================================================");
+        groups.forEach((key, group) -> {
+            List<Point> pinned = group.stream().filter(p -> p.mode().equals("synchronized")).toList();
+            List<Point> baseline = group.stream().filter(p -> p.mode().equals("reentrant")).toList();
+            double maxThroughput = group.stream().mapToDouble(Point::throughput).filter(v -> !Double.isNaN(v)).max().orElse(1);
+            double maxP99 = group.stream().mapToDouble(Point::p99Millis).filter(v -> !Double.isNaN(v)).max().orElse(1);
+
+            System.out.println("\n" + key);
+            System.out.printf("  %-8s %-" + (BAR_WIDTH + 2) + "s %12s   %-" + (BAR_WIDTH + 2) + "s %10s%n",
+                    "fraction", "throughput", "tasks/s", "p99 latency", "p99 (ms)");
+            Double collapseAt = null;
+            for (int i = 0; i < pinned.size(); i++) {
+                Point s = pinned.get(i);
+                Point r = baseline.get(i);
+                printRow(String.format("%.2f", s.fraction()), "S", s, maxThroughput, maxP99);
+                printRow("", "R", r, maxThroughput, maxP99);
+                if (collapseAt == null && s.throughput() < r.throughput() * COLLAPSE_RATIO) {
+                    collapseAt = s.fraction();
+                }
+            }
+            System.out.println(collapseAt == null
+                    ? "  ✅ No collapse: synchronized stays within " + (int) (COLLAPSE_RATIO * 100) + "% of ReentrantLock"
+                    : "  ⚠️ Collapse at pinned fraction " + collapseAt
+                      + " (synchronized below " + (int) (COLLAPSE_RATIO * 100) + "% of ReentrantLock)");
+        });
+    }
+
+    private static void printRow(String fraction, String series, Point p, double maxThroughput, double maxP99) {
+        System.out.printf("  %-8s %s %-" + BAR_WIDTH + "s %12s   %-" + (BAR_WIDTH + 2) + "s %10s%n",
+                fraction, series,
+                bar(p.throughput(), maxThroughput),
+                Double.isNaN(p.throughput()) ? "n/a" : String.format("%,.0f", p.throughput()),
+                bar(p.p99Millis(), maxP99),
+                Double.isNaN(p.p99Millis()) ? "n/a" : String.format("%.1f", p.p99Millis()));
+    }
+
+    private static String bar(double value, double max) {
+        if (Double.isNaN(value) || max <= 0) return "";
+        return "█".repeat((int) Math.round(value / max * BAR_WIDTH));
+    }
+
+    private static long[] parseLongs(String csv) {
+        return Arrays.stream(csv.split(",")).mapToLong(Long::parseLong).toArray();
+    }
+
+    private record Point(String mode, String blocking, double fraction, long blockMillis, int parallelism, int maxPoolSize, int tasks,
+                         double throughput, double p50Millis, double p99Millis) {}
+}
@@ -0,0 +1,159 @@
+package com.example.benchmark;
+
+import com.example.util.LogHistogram;
+import com.example.util.StripedLockManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Compares keyed locking strategies for virtual threads whose critical section blocks:
+ *
+ *  - synchronized-global:  one shared monitor (like a static synchronized method)
+ *  - synchronized-striped: one monitor per stripe, chosen by key
+ *  - reentrant-global:     one shared ReentrantLock
+ *  - striped-lock:         {@link StripedLockManager} with the same number of stripes
+ *
+ * Each task locks the resource key (taskId % keys), parks for holdMicros inside the critical
+ * section (a stand-in for I/O) and burns a little CPU. A virtual thread that parks while holding
+ * a monitor pins its carrier, so synchronized-striped is limited to the carrier count however many
+ * stripes there are, while striped-lock lets every free stripe make progress.
+ * With holdMicros=0 the section never blocks and the comparison is pure lock overhead.
+ *
+ * Usage: StripedLockBenchmark [tasks=10000] [keys=256] [stripes=64] [holdMicros=200] [rounds=3]
+ */
+public class StripedLockBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int keys = args.length > 1 ? Integer.parseInt(args[1]) : 256;
+        int stripes = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        long holdMicros = args.length > 3 ? Long.parseLong(args[3]) : 200;
+        int rounds = args.length > 4 ? Integer.parseInt(args[4]) : 3;
+
+        System.out.println("Java Version: " + System.getProperty("java.version"));
+        System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
+        System.out.printf("Tasks: %,d | Keys: %d | Stripes: %d | Hold: %d µs | Rounds: %d%n",
+                tasks, keys, stripes, holdMicros, rounds);
+
+        Object globalMonitor = new Object();
+        Object[] monitors = new Object[stripes];
+        for (int i = 0; i < stripes; i++) monitors[i] = new Object();
+        ReentrantLock globalLock = new ReentrantLock();
+        StripedLockManager stripedLock = new StripedLockManager("benchmark", stripes);
+
+        Map<String, Strategy> strategies = new LinkedHashMap<>();
+        strategies.put("synchronized-global", (key, section) -> {
+            synchronized (globalMonitor) {
+                section.run();
+            }
+        });
+        strategies.put("synchronized-striped", (key, section) -> {
+            synchronized (monitors[Math.floorMod(key.hashCode(), stripes)]) {
+                section.run();
+            }
+        });
+        strategies.put("reentrant-global", (key, section) -> {
+            globalLock.lock();
+            try {
+                section.run();
+            } finally {
+                globalLock.unlock();
+            }
+        });
+        strategies.put("striped-lock", stripedLock::runLocked);
+
+        System.out.println("\n🔥 Warming up...");
+        for (Strategy strategy : strategies.values()) {
+            runWorkload(strategy, Math.min(tasks, 2_000), keys, holdMicros);
+        }
+
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (Map.Entry<String, Strategy> entry : strategies.entrySet()) {
+            results.put(entry.getKey(), measure(entry.getKey(), entry.getValue(), tasks, keys, holdMicros, rounds));
+        }
+
+        printResults(results);
+        stripedLock.printReport();
+    }
+
+    // ======================
+    // Measurement
+    // ======================
+
+    private static Result measure(String name, Strategy strategy, int tasks, int keys, long holdMicros, int rounds)
+            throws InterruptedException {
+        System.out.println("\n▶ Strategy: " + name);
+        List<Double> throughputs = new ArrayList<>();
+        LogHistogram latencies = new LogHistogram();
+        for (int round = 0; round < rounds; round++) {
+            RoundResult result = runWorkload(strategy, tasks, keys, holdMicros);
+            throughputs.add(result.throughput());
+            latencies.merge(result.latencies());
+            System.out.printf("  round %d: %,.0f tasks/s%n", round + 1, result.throughput());
+        }
+        throughputs.sort(Double::compare);
+        return new Result(throughputs.get(throughputs.size() / 2), latencies);
+    }
+
+    private static RoundResult runWorkload(Strategy strategy, int tasks, int keys, long holdMicros)
+            throws InterruptedException {
+        long[] latencyNanos = new long[tasks];
+        CountDownLatch done = new CountDownLatch(tasks);
+        long holdNanos = holdMicros * 1_000;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < tasks; i++) {
+            final int taskId = i;
+            final long submitted = System.nanoTime();
+            Thread.ofVirtual().start(() -> {
+                strategy.withLock(taskId % keys, () -> {
+                    if (holdNanos > 0) LockSupport.parkNanos(holdNanos); // blocking inside the critical section
+                    double sink = 0;
+                    for (int k = 0; k < 200; k++) sink += Math.sqrt(k);
+                    if (sink == -1) System.out.println(sink);
+                });
+                latencyNanos[taskId] = System.nanoTime() - submitted;
+                done.countDown();
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        LogHistogram histogram = new LogHistogram();
+        for (long latency : latencyNanos) histogram.record(latency);
+        return new RoundResult(tasks / (elapsed / 1_000_000_000.0), histogram);
+    }
+
+    // ======================
+    // Reporting
+    // ======================
+
+    private static void printResults(Map<String, Result> results) {
+        double baseline = results.get("synchronized-global").throughput();
+        System.out.println("\n📊 Striped Lock vs synchronized");
+        System.out.println("================================");
+        System.out.printf("%-22s %12s %9s %10s %10s%n", "Strategy", "tasks/s", "speedup", "p50 (ms)", "p99 (ms)");
+        results.forEach((name, r) -> System.out.printf("%-22s %,12.0f %8.2fx %10.3f %10.3f%n",
+                name,
+                r.throughput(),
+                r.throughput() / baseline,
+                r.latencies().percentile(50) / 1_000_000.0,
+                r.latencies().percentile(99) / 1_000_000.0));
+        System.out.println("\nSpeedup is the median throughput against synchronized-global; p50/p99 are submit-to-completion.");
+    }
+
+    @FunctionalInterface
+    private interface Strategy {
+        void withLock(Object key, Runnable section);
+    }
+
+    private record RoundResult(double throughput, LogHistogram latencies) {}
+
+    private record Result(double throughput, LogHistogram latencies) {}
+}
@@ -1,6 +1,9 @@
 package com.example.mountandunmount;
 
+import java.io.IOException;
 import java.math.BigInteger;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -15,17 +18,28 @@ import static java.math.BigInteger.valueOf;
 public class VirtualThreadMountUnmountWithCustomProfiler {
 
     private static final int NUM_TASKS = 50;
-    private static final VirtualThreadProfiler profiler = new VirtualThreadProfiler(true);
 
     public static void main(String[] args) throws Exception {
+        // Run both workloads to compare how scheduling delay and run time differ
+        VirtualThreadProfiler ioProfiler = runWorkload("io", VirtualThreadMountUnmountWithCustomProfiler::simulateBlockingIO);
+        VirtualThreadProfiler cpuProfiler = runWorkload("cpu", VirtualThreadMountUnmountWithCustomProfiler::simulateCPULoad);
+
+        System.out.println("\n📈 I/O-bound vs CPU-bound:");
+        VirtualThreadProfiler.printLatencyPercentiles("I/O sched delay", ioProfiler.schedulingDelays());
+        VirtualThreadProfiler.printLatencyPercentiles("CPU sched delay", cpuProfiler.schedulingDelays());
+        VirtualThreadProfiler.printLatencyPercentiles("I/O run time", ioProfiler.runTimes());
+        VirtualThreadProfiler.printLatencyPercentiles("CPU run time", cpuProfiler.runTimes());
+    }
+
+    private static VirtualThreadProfiler runWorkload(String name, Runnable workload) {
+        System.out.println("\n=== Workload: " + name + " ===");
+        VirtualThreadProfiler profiler = new VirtualThreadProfiler.Builder()
+                .friendlyThreadNames(true)
+                .capacity(NUM_TASKS)
+                .build();
+
         try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
             for (int taskId = 0; taskId < NUM_TASKS; taskId++) {
-                Runnable workload = () -> {
-                    // Choose the workload type to test:
-                    simulateBlockingIO();
-                    //simulateCPULoad();
-                };
-
                 executor.submit(profiler.profile(taskId, workload));
             }
 
@@ -33,6 +47,15 @@ public class VirtualThreadMountUnmountWithCustomProfiler {
         }
 
         profiler.displayReport();
+
+        try {
+            Path trace = Paths.get("profiler-trace-" + name + ".json");
+            profiler.exportChromeTrace(trace);
+            System.out.println("📁 Trace written to: " + trace.toAbsolutePath() + " (open in https://ui.perfetto.dev)");
+        } catch (IOException e) {
+            System.err.println("❌ Failed to write trace: " + e.getMessage());
+        }
+        return profiler;
     }
 
     // === Simulates a blocking I/O-like operation ===
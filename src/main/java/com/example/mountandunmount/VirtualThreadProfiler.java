@@ -1,19 +1,125 @@
 package com.example.mountandunmount;
 
+import com.example.util.LogHistogram;
+import com.example.util.VirtualThreadInternals;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Profiles virtual thread tasks: timeline, and every mount/unmount observed while they run.
+ *
+ * JDK 21 emits no JFR event per mount/unmount, so a platform sampler thread polls the carrier of
+ * every running task every {@code samplePeriod}:
+ *  - carrier appears:     mount
+ *  - carrier disappears:  unmount
+ *  - carrier changes:     unmount + mount (the unmount happened between two samples)
+ * A mount on a different carrier than the previous one is a hop.
+ *
+ * The carrier is read through {@link VirtualThreadInternals#carrierNameOf(Thread)}: directly with
+ * {@code --add-opens java.base/java.lang=ALL-UNNAMED}, otherwise by parsing
+ * {@code VirtualThread.toString()}, which allocates. In that fallback the sampler first checks
+ * {@code Thread.getState()} (no allocation): a parked or blocked task is unmounted, and a task
+ * that stays RUNNABLE is assumed to stay on its carrier, re-parsed every
+ * {@value #FALLBACK_RECHECK_SAMPLES} samples to catch hops. Either way, intervals shorter than the
+ * sample period can be missed, so counts are lower bounds.
+ *
+ * Storage is columnar and preallocated for {@code capacity} task IDs (0..capacity-1), so a
+ * million-task run does not allocate per task beyond the wrapping Runnable (~100 bytes of
+ * columns per task). A task writes only its own slots; the sampler is the only writer of the
+ * mount columns; no locks are taken. Carriers are kept as a 64-bit mask per task (carriers past
+ * the 63rd share the last bit). Strings are only built when the report is rendered.
+ *
+ * Every observed mount interval also goes to a bounded interval log (sampler-only, grown by
+ * doubling up to {@code maxIntervals}, so short runs do not pay for the full log),
+ * which {@link #exportChromeTrace(Path)} writes as Chrome Trace Event JSON: one track per carrier,
+ * one slice per mount. Open it in https://ui.perfetto.dev or chrome://tracing.
+ *
+ * All times are {@code System.nanoTime()}: submit (when {@link #profile} wraps the task, so call it
+ * at submit time), first run, and completion. The report gives scheduling delay (submit to first
+ * run) and run time percentiles from {@link LogHistogram}s, which callers can merge across runs.
+ */
 public class VirtualThreadProfiler {
 
-    // Stores profiling results per task (taskId → TaskStats)
-    // Sorted map ensures ordered output
-    private final Map<Integer, TaskStats> taskStatsMap = new ConcurrentSkipListMap<>();
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final Duration DEFAULT_SAMPLE_PERIOD = Duration.ofNanos(200_000);
+    private static final int DEFAULT_MAX_REPORT_LINES = 100;
+    private static final int DEFAULT_MAX_INTERVALS = 1 << 20;
+    private static final int INITIAL_INTERVALS = 1 << 12;
 
-    // Start time for relative timing of all tasks
-    private final long profilerStartTime = System.currentTimeMillis();
+    private static final int FREE = 0;
+    private static final int RUNNING = 1;
+    private static final int DONE = 2;
+    private static final int NO_CARRIER = -1;
+    private static final int FALLBACK_RECHECK_SAMPLES = 64;
 
-    // Whether to display simplified virtual thread names
+    private final int capacity;
     private final boolean useFriendlyThreadNames;
+    private final long samplePeriodNanos;
+    private final int maxReportLines;
+
+    // Start time for relative timing of all tasks
+    private final long profilerStartNanos = System.nanoTime();
+
+    // Written by the submitting thread; the executor hand-off makes it visible to the task
+    private final long[] submitNanos;
+
+    // Written by the task thread, before it is published
+    private final long[] startNanos;
+    private final long[] threadIds;
+    private final String[] startCarrier;
+    private final Thread[] threads;
+    private final String[] endCarrier;
+    // 0 while running; the volatile write publishes the end columns above
+    private final AtomicLongArray endNanos;
+    // FREE -> RUNNING (task) -> DONE (sampler)
+    private final AtomicIntegerArray state;
+
+    // Started task IDs in start order; the sampler consumes them up to startedCount
+    private final AtomicIntegerArray startedOrder;
+    private final AtomicInteger startedCount = new AtomicInteger();
+    private final AtomicInteger droppedTasks = new AtomicInteger();
+
+    // Written by the sampler thread only
+    private final long[] mountedNanos;
+    private final long[] unmountedNanos;
+    private final long[] lastTransitionNanos;
+    private final long[] carrierMask;
+    private final int[] mounts;
+    private final int[] hops;
+    private final int[] currentCarrier;
+    private final int[] lastMountedCarrier;
+    // Samples since toString() was last parsed; null when the carrier field is readable directly
+    private final int[] samplesSinceParse;
+    private final Map<String, Integer> carrierIndex = new HashMap<>();
+    private final List<String> carrierNames = new ArrayList<>();
+
+    // Mount interval log, written by the sampler only; full log = later intervals are dropped
+    private final int maxIntervals;
+    private int[] intervalTask;
+    private int[] intervalCarrier;
+    private long[] intervalStart;
+    private long[] intervalEnd;
+    private int intervalCount;
+    private long droppedIntervals;
+
+    private final Thread sampler;
+    private final AtomicBoolean running = new AtomicBoolean(true);
 
     // Default: full thread names
     public VirtualThreadProfiler() {
@@ -22,95 +128,437 @@ public class VirtualThreadProfiler {
 
     // Enable/disable simplified thread name output
     public VirtualThreadProfiler(boolean useFriendlyThreadNames) {
-        this.useFriendlyThreadNames = useFriendlyThreadNames;
+        this(new Builder().friendlyThreadNames(useFriendlyThreadNames));
     }
 
-    // Wraps a task to record timing and detect carrier thread switches
+    private VirtualThreadProfiler(Builder builder) {
+        this.capacity = builder.capacity;
+        this.useFriendlyThreadNames = builder.friendlyThreadNames;
+        this.samplePeriodNanos = builder.samplePeriod.toNanos();
+        this.maxReportLines = builder.maxReportLines;
+
+        this.submitNanos = new long[capacity];
+        this.startNanos = new long[capacity];
+        this.threadIds = new long[capacity];
+        this.startCarrier = new String[capacity];
+        this.threads = new Thread[capacity];
+        this.endCarrier = new String[capacity];
+        this.endNanos = new AtomicLongArray(capacity);
+        this.state = new AtomicIntegerArray(capacity);
+        this.startedOrder = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) startedOrder.set(i, -1);
+
+        this.mountedNanos = new long[capacity];
+        this.unmountedNanos = new long[capacity];
+        this.lastTransitionNanos = new long[capacity];
+        this.carrierMask = new long[capacity];
+        this.mounts = new int[capacity];
+        this.hops = new int[capacity];
+        this.currentCarrier = new int[capacity];
+        this.lastMountedCarrier = new int[capacity];
+        this.samplesSinceParse = VirtualThreadInternals.isCarrierAccessible() ? null : new int[capacity];
+
+        this.maxIntervals = builder.maxIntervals;
+        int initialIntervals = Math.min(maxIntervals, INITIAL_INTERVALS);
+        this.intervalTask = new int[initialIntervals];
+        this.intervalCarrier = new int[initialIntervals];
+        this.intervalStart = new long[initialIntervals];
+        this.intervalEnd = new long[initialIntervals];
+
+        this.sampler = Thread.ofPlatform().daemon().name("vt-profiler-sampler").start(this::sampleLoop);
+    }
+
+    // Wraps a task to record timing and its mount/unmount history; the call time is the submit time
     public Runnable profile(int taskId, Runnable task) {
+        if (taskId < 0 || taskId >= capacity) {
+            droppedTasks.incrementAndGet();
+            return task;
+        }
+        submitNanos[taskId] = System.nanoTime();
         return () -> {
-            long threadStartTime = System.currentTimeMillis();
-            String threadBefore = Thread.currentThread().toString();
+            if (!state.compareAndSet(taskId, FREE, RUNNING)) {
+                throw new IllegalArgumentException("Duplicate task ID: " + taskId);
+            }
+            Thread current = Thread.currentThread();
+            startNanos[taskId] = System.nanoTime();
+            threadIds[taskId] = current.threadId();
+            startCarrier[taskId] = VirtualThreadInternals.carrierNameOf(current);
+            threads[taskId] = current;
+            startedOrder.set(startedCount.getAndIncrement(), taskId); // publishes the columns above
 
-            task.run();
+            try {
+                task.run();
+            } finally {
+                endCarrier[taskId] = VirtualThreadInternals.carrierNameOf(current);
+                endNanos.set(taskId, System.nanoTime());
+            }
+        };
+    }
 
-            long threadEndTime = System.currentTimeMillis();
-            String threadAfter = Thread.currentThread().toString();
+    // ======================
+    // Sampler
+    // ======================
 
-            String virtualThreadName = extractVirtualThreadName(threadBefore);
-            String carrierThreadNameBefore = extractCarrierThreadName(threadBefore);
-            String carrierThreadNameAfter = extractCarrierThreadName(threadAfter);
+    private void sampleLoop() {
+        int[] active = new int[256];
+        int activeCount = 0;
+        int consumed = 0;
+        boolean draining = false;
 
-            String threadSwitchNote = carrierThreadNameBefore.equals(carrierThreadNameAfter)
-                    ? "❌ " + virtualThreadName + " remounted on same carrier thread ! " + carrierThreadNameBefore
-                    : "✅ " + virtualThreadName + " hopped from " + carrierThreadNameBefore
-                    + " to " + carrierThreadNameAfter;
+        while (true) {
+            boolean stopping = !running.get();
 
-            TaskStats previous = taskStatsMap.put(taskId,
-                    new TaskStats(threadStartTime - profilerStartTime,
-                            threadEndTime - profilerStartTime,
-                            threadSwitchNote));
+            // Pick up newly started tasks (a reserved slot may not be written yet: retry next round)
+            int started = startedCount.get();
+            while (consumed < started) {
+                int taskId = startedOrder.get(consumed);
+                if (taskId < 0) break;
+                if (activeCount == active.length) active = Arrays.copyOf(active, activeCount * 2);
+                active[activeCount++] = taskId;
+                onTaskStarted(taskId);
+                consumed++;
+            }
 
-            if (previous != null) {
-                throw new IllegalArgumentException("Duplicate task ID: " + taskId);
+            for (int i = activeCount - 1; i >= 0; i--) {
+                int taskId = active[i];
+                long end = endNanos.get(taskId);
+                if (end != 0) {
+                    observe(taskId, carrierId(endCarrier[taskId]), end);
+                    accumulate(taskId, end);
+                    threads[taskId] = null;
+                    endCarrier[taskId] = null;
+                    state.set(taskId, DONE);
+                    active[i] = active[--activeCount];
+                } else {
+                    observe(taskId, sampleCarrier(taskId), System.nanoTime());
+                }
             }
-        };
+
+            // One last pass after stop() so every completed task is accounted for
+            if (stopping) {
+                if (draining) return;
+                draining = true;
+                continue;
+            }
+            LockSupport.parkNanos(samplePeriodNanos);
+        }
+    }
+
+    private void onTaskStarted(int taskId) {
+        currentCarrier[taskId] = NO_CARRIER;
+        lastMountedCarrier[taskId] = NO_CARRIER;
+        lastTransitionNanos[taskId] = startNanos[taskId];
+        // The task is mounted when it starts running
+        mount(taskId, carrierId(startCarrier[taskId] != null ? startCarrier[taskId] : "unknown"));
+        startCarrier[taskId] = null;
+    }
+
+    private int sampleCarrier(int taskId) {
+        Thread thread = threads[taskId];
+        if (samplesSinceParse == null) return carrierId(VirtualThreadInternals.carrierNameOf(thread));
+        if (thread.getState() != Thread.State.RUNNABLE) return NO_CARRIER;
+        if (currentCarrier[taskId] != NO_CARRIER && ++samplesSinceParse[taskId] < FALLBACK_RECHECK_SAMPLES) {
+            return currentCarrier[taskId];
+        }
+        samplesSinceParse[taskId] = 0;
+        return carrierId(VirtualThreadInternals.carrierNameOf(thread));
+    }
+
+    private void observe(int taskId, int carrier, long nowNanos) {
+        if (carrier == currentCarrier[taskId]) return;
+        accumulate(taskId, nowNanos);
+        if (carrier != NO_CARRIER) {
+            mount(taskId, carrier);
+        } else {
+            currentCarrier[taskId] = NO_CARRIER;
+        }
+    }
+
+    private void mount(int taskId, int carrier) {
+        int last = lastMountedCarrier[taskId];
+        if (last != NO_CARRIER && last != carrier) hops[taskId]++;
+        mounts[taskId]++;
+        carrierMask[taskId] |= 1L << Math.min(carrier, 63);
+        currentCarrier[taskId] = carrier;
+        lastMountedCarrier[taskId] = carrier;
     }
 
-    // Print timeline chart and thread switch notes for all tasks
+    private void accumulate(int taskId, long nowNanos) {
+        long elapsed = Math.max(0, nowNanos - lastTransitionNanos[taskId]);
+        if (currentCarrier[taskId] != NO_CARRIER) {
+            mountedNanos[taskId] += elapsed;
+            logInterval(taskId, currentCarrier[taskId], lastTransitionNanos[taskId], nowNanos);
+        } else {
+            unmountedNanos[taskId] += elapsed;
+        }
+        lastTransitionNanos[taskId] = nowNanos;
+    }
+
+    private void logInterval(int taskId, int carrier, long startNanos, long endNanos) {
+        // A task that ends right after an observation leaves an empty interval: nothing to draw
+        if (endNanos <= startNanos) return;
+        if (intervalCount == intervalTask.length && !growIntervalLog()) {
+            droppedIntervals++;
+            return;
+        }
+        intervalTask[intervalCount] = taskId;
+        intervalCarrier[intervalCount] = carrier;
+        intervalStart[intervalCount] = startNanos;
+        intervalEnd[intervalCount] = endNanos;
+        intervalCount++;
+    }
+
+    private boolean growIntervalLog() {
+        if (intervalTask.length >= maxIntervals) return false;
+        int newLength = (int) Math.min(maxIntervals, intervalTask.length * 2L);
+        intervalTask = Arrays.copyOf(intervalTask, newLength);
+        intervalCarrier = Arrays.copyOf(intervalCarrier, newLength);
+        intervalStart = Arrays.copyOf(intervalStart, newLength);
+        intervalEnd = Arrays.copyOf(intervalEnd, newLength);
+        return true;
+    }
+
+    // Small integer per carrier name; names returned by Thread.getName() are stable, so no allocation
+    private int carrierId(String carrierName) {
+        if (carrierName == null) return NO_CARRIER;
+        Integer id = carrierIndex.get(carrierName);
+        if (id == null) {
+            id = carrierNames.size();
+            carrierNames.add(carrierName);
+            carrierIndex.put(carrierName, id);
+        }
+        return id;
+    }
+
+    // ======================
+    // Report
+    // ======================
+
+    // Stops the sampler, then prints the timeline chart and mount/unmount details for all tasks
     public void displayReport() {
-        long maxEndTime = taskStatsMap.values().stream()
-                .mapToLong(TaskStats::end)
-                .max()
-                .orElse(1L);
-        double scaleFactor = 50.0 / maxEndTime;
+        stop();
+
+        long maxEndNanos = 1;
+        int completed = 0;
+        long totalHops = 0;
+        long totalMounts = 0;
+        long totalMounted = 0;
+        long totalUnmounted = 0;
+        long allCarriers = 0;
+        for (int taskId = 0; taskId < capacity; taskId++) {
+            if (state.get(taskId) != DONE) continue;
+            completed++;
+            maxEndNanos = Math.max(maxEndNanos, endNanos.get(taskId) - profilerStartNanos);
+            totalHops += hops[taskId];
+            totalMounts += mounts[taskId];
+            totalMounted += mountedNanos[taskId];
+            totalUnmounted += unmountedNanos[taskId];
+            allCarriers |= carrierMask[taskId];
+        }
+        double scaleFactor = 50.0 / maxEndNanos;
 
         System.out.println("\n📊 Task Execution Timeline:\n");
 
-        for (Map.Entry<Integer, TaskStats> entry : taskStatsMap.entrySet()) {
-            int taskId = entry.getKey();
-            TaskStats stats = entry.getValue();
+        int lines = 0;
+        for (int taskId = 0; taskId < capacity && lines < maxReportLines; taskId++) {
+            if (state.get(taskId) != DONE) continue;
+            lines++;
 
-            String leading = " ".repeat((int) (stats.start * scaleFactor));
-            String bar = "*".repeat((int) ((stats.end - stats.start) * scaleFactor));
+            String leading = " ".repeat((int) ((startNanos[taskId] - profilerStartNanos) * scaleFactor));
+            String bar = "*".repeat((int) ((endNanos.get(taskId) - startNanos[taskId]) * scaleFactor));
             String trailing = " ".repeat(Math.max(0, 50 - leading.length() - bar.length()));
 
             System.out.printf("Task %02d: %s%s%s  ->> %s%n",
-                    taskId, leading, bar, trailing, stats.threadSwitchNote);
+                    taskId, leading, bar, trailing, note(taskId));
+        }
+        if (completed > lines) {
+            System.out.printf("... %d more tasks%n", completed - lines);
         }
 
-        System.out.printf("%n🕒 Total Duration: %d ms | 🧵 Tasks: %d | 💻 CPU Cores: %d%n",
-                System.currentTimeMillis() - profilerStartTime,
-                taskStatsMap.size(),
+        System.out.printf("%n🕒 Total Duration: %d ms | 🧵 Tasks: %d | 🔀 Hops: %d | 💻 CPU Cores: %d%n",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - profilerStartNanos),
+                completed,
+                totalHops,
                 Runtime.getRuntime().availableProcessors());
+        if (completed > 0) {
+            System.out.printf("🔁 Avg mounts/task: %.2f | Mounted: %.1f ms total | Unmounted: %.1f ms total | Carriers used: %d%n",
+                    (double) totalMounts / completed,
+                    totalMounted / 1_000_000.0,
+                    totalUnmounted / 1_000_000.0,
+                    Long.bitCount(allCarriers));
+            printLatencyPercentiles("Scheduling delay", schedulingDelays());
+            printLatencyPercentiles("Run time", runTimes());
+        }
+        System.out.printf("🔬 Carrier sampling every %d µs (%s)%n",
+                TimeUnit.NANOSECONDS.toMicros(samplePeriodNanos),
+                VirtualThreadInternals.isCarrierAccessible()
+                        ? "direct carrier field access"
+                        : "Thread.getState() with periodic Thread.toString() parsing; add --add-opens java.base/java.lang=ALL-UNNAMED for direct access");
+        if (droppedTasks.get() > 0) {
+            System.out.printf("⚠️ %d tasks not profiled: task ID outside 0..%d%n", droppedTasks.get(), capacity - 1);
+        }
+    }
+
+    /**
+     * Submit-to-first-run delay of every completed task, in nanoseconds.
+     */
+    public LogHistogram schedulingDelays() {
+        LogHistogram histogram = new LogHistogram();
+        for (int taskId = 0; taskId < capacity; taskId++) {
+            if (state.get(taskId) == DONE) histogram.record(Math.max(0, startNanos[taskId] - submitNanos[taskId]));
+        }
+        return histogram;
+    }
+
+    /**
+     * First-run-to-completion time of every completed task, in nanoseconds.
+     */
+    public LogHistogram runTimes() {
+        LogHistogram histogram = new LogHistogram();
+        for (int taskId = 0; taskId < capacity; taskId++) {
+            if (state.get(taskId) == DONE) histogram.record(Math.max(0, endNanos.get(taskId) - startNanos[taskId]));
+        }
+        return histogram;
+    }
+
+    public static void printLatencyPercentiles(String label, LogHistogram nanos) {
+        System.out.printf("⏱️ %-16s p50: %9.3f ms | p90: %9.3f ms | p99: %9.3f ms | max: %9.3f ms%n",
+                label,
+                nanos.percentile(50) / 1_000_000.0,
+                nanos.percentile(90) / 1_000_000.0,
+                nanos.percentile(99) / 1_000_000.0,
+                nanos.max() / 1_000_000.0);
+    }
+
+    /**
+     * Stops the sampler and writes the mount intervals as Chrome Trace Event JSON:
+     * each carrier is a track (tid), each mount interval an "X" slice named after its task.
+     */
+    public void exportChromeTrace(Path file) throws IOException {
+        stop();
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            out.write("{\"displayTimeUnit\":\"ns\",\"traceEvents\":[\n");
+            out.write("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":1,\"args\":{\"name\":\"Virtual thread carriers\"}}");
+            for (int carrier = 0; carrier < carrierNames.size(); carrier++) {
+                out.write(",\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + (carrier + 1)
+                        + ",\"args\":{\"name\":\"" + jsonEscape(carrierNames.get(carrier)) + "\"}}");
+            }
+            StringBuilder event = new StringBuilder(160);
+            for (int i = 0; i < intervalCount; i++) {
+                int taskId = intervalTask[i];
+                event.setLength(0);
+                event.append(",\n{\"name\":\"task ").append(taskId)
+                        .append("\",\"cat\":\"mount\",\"ph\":\"X\",\"pid\":1,\"tid\":").append(intervalCarrier[i] + 1)
+                        .append(",\"ts\":");
+                appendMicros(event, intervalStart[i] - profilerStartNanos);
+                event.append(",\"dur\":");
+                appendMicros(event, intervalEnd[i] - intervalStart[i]);
+                event.append(",\"args\":{\"task\":").append(taskId)
+                        .append(",\"virtualThread\":").append(threadIds[taskId]).append("}}");
+                out.append(event);
+            }
+            out.write("\n]}\n");
+        }
+        if (droppedIntervals > 0) {
+            System.out.printf("⚠️ Interval log full: %d mount intervals not exported%n", droppedIntervals);
+        }
+    }
+
+    // Trace timestamps are microseconds; keep nanosecond precision as a 3-digit fraction
+    private static void appendMicros(StringBuilder sb, long nanos) {
+        sb.append(nanos / 1000).append('.');
+        long fraction = Math.abs(nanos % 1000);
+        if (fraction < 100) sb.append('0');
+        if (fraction < 10) sb.append('0');
+        sb.append(fraction);
+    }
+
+    private static String jsonEscape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
     }
 
-    // Extracts virtual thread name, e.g., "VirtualThread[#21]"
-    private String extractVirtualThreadName(String threadString) {
-        if (!useFriendlyThreadNames) return threadString;
-        int slashIndex = threadString.indexOf('/');
-        return slashIndex != -1 ? threadString.substring(0, slashIndex) : threadString;
+    private String note(int taskId) {
+        String marker = hops[taskId] > 0 ? "✅ " : "❌ ";
+        return String.format("%s%s mounts=%d hops=%d mounted=%.1f ms unmounted=%.1f ms carriers=%s",
+                marker, virtualThreadName(taskId), mounts[taskId], hops[taskId],
+                mountedNanos[taskId] / 1_000_000.0, unmountedNanos[taskId] / 1_000_000.0,
+                carrierList(carrierMask[taskId]));
+    }
+
+    // Rebuilds the thread label, e.g. "VirtualThread[#21]" or "VirtualThread[#21]@ForkJoinPool-1-worker-3"
+    private String virtualThreadName(int taskId) {
+        String name = "VirtualThread[#" + threadIds[taskId] + "]";
+        if (useFriendlyThreadNames) return name;
+        int lowestBit = Long.numberOfTrailingZeros(carrierMask[taskId]);
+        return lowestBit < carrierNames.size() ? name + "@" + carrierNames.get(lowestBit) : name;
+    }
+
+    private String carrierList(long mask) {
+        StringJoiner joiner = new StringJoiner(", ", "[", "]");
+        for (int bit = 0; bit < 64; bit++) {
+            if ((mask & (1L << bit)) == 0) continue;
+            if (bit < carrierNames.size()) {
+                joiner.add(bit == 63 && carrierNames.size() > 64 ? "other" : carrierNames.get(bit));
+            }
+        }
+        return joiner.toString();
     }
 
-    // Extracts carrier thread name, e.g., "ForkJoinPool-1-worker-3"
-    private String extractCarrierThreadName(String threadString) {
-        int atIndex = threadString.indexOf('@');
-        return atIndex != -1 ? threadString.substring(atIndex + 1) : "unknown";
+    /**
+     * Stops the sampler after it has accounted for all completed tasks. Safe to call from several
+     * threads: only the first wakes the sampler, and every caller returns once it has drained.
+     */
+    public void stop() {
+        if (running.compareAndSet(true, false)) {
+            LockSupport.unpark(sampler);
+        }
+        try {
+            sampler.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
-    // Per-task execution stats: start time, end time, and switch message
-    private static class TaskStats {
-        final long start;
-        final long end;
-        final String threadSwitchNote;
+    // ======================
+    // Builder
+    // ======================
+    public static class Builder {
+        private int capacity = DEFAULT_CAPACITY;
+        private boolean friendlyThreadNames;
+        private Duration samplePeriod = DEFAULT_SAMPLE_PERIOD;
+        private int maxReportLines = DEFAULT_MAX_REPORT_LINES;
+        private int maxIntervals = DEFAULT_MAX_INTERVALS;
 
-        TaskStats(long start, long end, String threadSwitchNote) {
-            this.start = start;
-            this.end = end;
-            this.threadSwitchNote = threadSwitchNote;
+        // Task IDs must lie in 0..capacity-1; columns are preallocated for all of them
+        public Builder capacity(int capacity) {
+            this.capacity = capacity;
+            return this;
         }
 
-        long start() { return start; }
+        public Builder friendlyThreadNames(boolean friendlyThreadNames) {
+            this.friendlyThreadNames = friendlyThreadNames;
+            return this;
+        }
+
+        public Builder samplePeriod(Duration samplePeriod) {
+            this.samplePeriod = samplePeriod;
+            return this;
+        }
 
-        long end() { return end; }
+        // Timeline lines printed by displayReport(); the summary always covers all tasks
+        public Builder maxReportLines(int maxReportLines) {
+            this.maxReportLines = maxReportLines;
+            return this;
+        }
+
+        // Mount intervals kept for exportChromeTrace(); 24 bytes each, allocated as the log grows
+        public Builder maxIntervals(int maxIntervals) {
+            this.maxIntervals = maxIntervals;
+            return this;
+        }
+
+        public VirtualThreadProfiler build() {
+            return new VirtualThreadProfiler(this);
+        }
     }
 }
@@ -2,11 +2,13 @@ package com.example.pinning;
 
 
 import com.example.util.CommonUtil;
+import com.example.util.StripedLockManager;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -25,6 +27,8 @@ public class VirtualThreadPinning {
     // Sleep duration for simulating blocking
     private static final int SLEEP_TIME_MS = 10000;
 
+    private static final int TASK_COUNT = 250;
+
     // Simulates a blocking operation
     public static void simulateBlockingWithWait() {
         try {
@@ -36,13 +40,21 @@ public class VirtualThreadPinning {
         }
     }
 
+    // Shared like the class monitor below, so both variants serialize the same way and differ only in pinning:
+    // all TASK_COUNT tasks run one after another (TASK_COUNT * SLEEP_TIME_MS in total)
+    private static final ReentrantLock LOCK = new ReentrantLock();
+
+    // Per-resource locking: tasks on different keys run concurrently instead of queuing on one lock
+    private static final StripedLockManager RESOURCE_LOCKS = new StripedLockManager("pinning-demo", 64);
+
     // This method causes pinning because of the synchronized keyword
+    // (static synchronized: every task queues on the single class monitor while the holder pins its carrier)
     public static  synchronized void simulateBlockingWorkWithSynchronized() {
         simulateBlockingWithWait();
     }
     // Simulates a blocking operation with a ReentrantLock
     public static void simulateBlockingWithReEntrantLock() {
-        ReentrantLock lock = new ReentrantLock();
+        ReentrantLock lock = LOCK;
         lock.lock();
         try {
             System.out.println("[" + Thread.currentThread().getName() + "] Blocking with ReentrantLock");
@@ -54,6 +66,56 @@ public class VirtualThreadPinning {
         }
     }
 
+    // Simulates a blocking operation guarding only the given resource, without pinning
+    public static void simulateBlockingWithStripedLock(Object resourceKey) {
+        RESOURCE_LOCKS.runLocked(resourceKey, () -> {
+            System.out.println("[" + Thread.currentThread().getName() + "] Blocking with striped lock on " + resourceKey);
+            simulateBlockingWithWait();
+        });
+    }
+
+    // Blocks for the given time while holding the monitor: the virtual thread pins its carrier throughout
+    public static void blockInSynchronized(Object monitor, long blockMillis) {
+        synchronized (monitor) {
+            blockWithoutLock(blockMillis);
+        }
+    }
+
+    // Waits on the monitor it holds: still pinned on JDK 21, but unlike sleep the scheduler compensates
+    // with an extra carrier (up to jdk.virtualThreadScheduler.maxPoolSize) while the wait lasts
+    public static void blockInSynchronizedWait(Object monitor, long blockMillis) {
+        synchronized (monitor) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockMillis);
+            try {
+                long remaining;
+                while ((remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())) > 0) {
+                    monitor.wait(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Same critical section with a j.u.c. lock: the virtual thread unmounts while it sleeps
+    public static void blockWithLock(Lock lock, long blockMillis) {
+        lock.lock();
+        try {
+            blockWithoutLock(blockMillis);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Blocks for the given time outside any lock
+    public static void blockWithoutLock(long blockMillis) {
+        try {
+            Thread.sleep(blockMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     // Custom ThreadFactory to assign names to virtual threads
     private static final ThreadFactory namedVirtualThreadFactory =
             Thread.ofVirtual().name("VT-PinningDemo-", 0).factory();
@@ -65,19 +127,27 @@ public class VirtualThreadPinning {
         System.out.println("Java Version: " + System.getProperty("java.version"));
         System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
 
-        for (int i = 0; i < 250; i++) {
+        // Tasks whose keys share a stripe still run one after another, so wait for the busiest stripe.
+        // The commented-out variants serialize every task: allow TASK_COUNT * SLEEP_TIME_MS for them.
+        int[] tasksPerStripe = new int[RESOURCE_LOCKS.stripeCount()];
+        int maxTasksPerStripe = 0;
+        for (int i = 0; i < TASK_COUNT; i++) {
             final int taskId = i;
+            maxTasksPerStripe = Math.max(maxTasksPerStripe, ++tasksPerStripe[RESOURCE_LOCKS.stripeOf(taskId)]);
             vtExecutor.submit(() -> {
                 System.out.println("Task " + taskId + " started on [" + Thread.currentThread().getName() + "]");
                 //simulateBlockingWorkWithSynchronized();
-                simulateBlockingWithReEntrantLock();
+                //simulateBlockingWithReEntrantLock();
+                simulateBlockingWithStripedLock(taskId);
                 System.out.println("Task " + taskId + " completed");
             });
         }
         // Shutdown and wait for tasks to complete
         vtExecutor.shutdown();
+        long timeoutMillis = (long) SLEEP_TIME_MS * maxTasksPerStripe + 5000;
+        System.out.printf("Busiest stripe holds %d tasks: waiting up to %d s%n", maxTasksPerStripe, timeoutMillis / 1000);
         try {
-            if (!vtExecutor.awaitTermination(SLEEP_TIME_MS + 5000, TimeUnit.MILLISECONDS)) {
+            if (!vtExecutor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
                 System.out.println("Forcing shutdown - tasks took too long.");
                 vtExecutor.shutdownNow();
             }
@@ -15,15 +15,17 @@ public class ProductAvailabilityWithShutdownOnSuccess {
 
         String productId = "P-FAST";
 
-        try (var scope = new StructuredTaskScope.ShutdownOnSuccess<InventoryStatus>()) {
+        try (var trace = ScopeTracer.open("availability:" + productId);
+             var scope = new StructuredTaskScope.ShutdownOnSuccess<InventoryStatus>()) {
 
-            scope.fork(() -> getInventoryFromSource("Warehouse-A", productId, 200, true));
-            scope.fork(() -> getInventoryFromSource("Warehouse-B", productId, 1500, true));
-            scope.fork(() -> getInventoryFromSource("Partner-API", productId, 1000, false));
+            scope.fork(trace.fork("Warehouse-A", () -> getInventoryFromSource("Warehouse-A", productId, 200, true)));
+            scope.fork(trace.fork("Warehouse-B", () -> getInventoryFromSource("Warehouse-B", productId, 1500, true)));
+            scope.fork(trace.fork("Partner-API", () -> getInventoryFromSource("Partner-API", productId, 1000, false)));
 
             scope.join(); // wait for any successful task
 
-            InventoryStatus result = scope.result();
+            // The first success wins and the others are interrupted; the scope itself still succeeded
+            InventoryStatus result = trace.result(scope::result);
             if (result == null) {
                 System.out.println("❌ No inventory source returned success");
             } else {
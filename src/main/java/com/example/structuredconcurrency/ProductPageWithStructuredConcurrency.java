@@ -72,19 +72,27 @@ public class ProductPageWithStructuredConcurrency {
     public ProductPageData loadProductPage(String productId, boolean simulateHang, boolean simulateFailure, boolean simulateReviewDelay)
             throws Exception {
 
-        try (var scope = new StructuredTaskScope.ShutdownOnFailure()) {
-            var productTask = scope.fork(() -> getProductDetails(productId));
-            var inventoryTask = scope.fork(() -> getInventoryStatus(productId, simulateHang, simulateFailure));
-            var reviewTask = scope.fork(() -> ReviewService.getReviews(productId, simulateReviewDelay));
+        // Tracer opened first so it closes after the scope; emits JFR scope/fork events
+        try (var trace = ScopeTracer.open("product-page:" + productId);
+             var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+            var productTask = scope.fork(trace.fork("product", () -> getProductDetails(productId)));
+            var inventoryTask = scope.fork(trace.fork("inventory",
+                    () -> getInventoryStatus(productId, simulateHang, simulateFailure)));
+            var reviewTask = scope.fork(trace.fork("reviews",
+                    () -> ReviewService.getReviews(productId, simulateReviewDelay)));
 
             scope.join();             // Wait for all tasks or fail-fast
-            scope.throwIfFailed();    // Throw if any task failed
 
-            return new ProductPageData(
-                    productTask.get(),
-                    inventoryTask.get(),
-                    reviewTask.get()
-            );
+            // The tracer records the scope's own outcome from this result
+            return trace.result(() -> {
+                scope.throwIfFailed();    // Throw if any task failed
+
+                return new ProductPageData(
+                        productTask.get(),
+                        inventoryTask.get(),
+                        reviewTask.get()
+                );
+            });
         }
     }
 
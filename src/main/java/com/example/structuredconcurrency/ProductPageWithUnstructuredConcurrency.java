@@ -1,5 +1,8 @@
 package com.example.structuredconcurrency;
 
+import com.example.util.InstrumentedExecutorService;
+import com.example.util.PrometheusMetricsInitializer;
+
 import java.util.concurrent.*;
 
 /**
@@ -12,16 +15,25 @@ import java.util.concurrent.*;
 public class ProductPageWithUnstructuredConcurrency {
 
     // Using virtual threads to simplify thread analysis in tools like VisualVM and JFR
-    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // Instrumented so submit rate, in-flight tasks and failures show up next to the JFR metrics
+    private final ExecutorService executor =
+            InstrumentedExecutorService.wrap(Executors.newVirtualThreadPerTaskExecutor(), "product-page-unstructured");
 
     public static void main(String[] args) throws Exception {
-        ProductPageWithUnstructuredConcurrency productPageWithUnstructuredConcurrency = new ProductPageWithUnstructuredConcurrency();
+        // Opt-in (-Dmetrics.enabled=true), before the executor is created so its meters land in the
+        // Prometheus registry (:8081/metrics); stopped at the end so the demo still exits
+        boolean metrics = PrometheusMetricsInitializer.initializeIfEnabled();
+        try {
+            ProductPageWithUnstructuredConcurrency productPageWithUnstructuredConcurrency = new ProductPageWithUnstructuredConcurrency();
 
-        //productPageWithUnstructuredConcurrency.runScenario1_FailureDoesNotCancelOthers();
-        //productPageWithUnstructuredConcurrency.runScenario2_NoCancellationPropagation();
-        productPageWithUnstructuredConcurrency.runScenario3_FailurePlusBlockingWastesTime();
+            //productPageWithUnstructuredConcurrency.runScenario1_FailureDoesNotCancelOthers();
+            //productPageWithUnstructuredConcurrency.runScenario2_NoCancellationPropagation();
+            productPageWithUnstructuredConcurrency.runScenario3_FailurePlusBlockingWastesTime();
 
-        productPageWithUnstructuredConcurrency.executor.close(); // Does not affect already running tasks
+            productPageWithUnstructuredConcurrency.executor.close(); // Does not affect already running tasks
+        } finally {
+            if (metrics) PrometheusMetricsInitializer.shutdown();
+        }
     }
 
     // Scenario 1: Failure in one task doesn't cancel others
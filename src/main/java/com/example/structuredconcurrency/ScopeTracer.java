@@ -0,0 +1,158 @@
+package com.example.structuredconcurrency;
+
+import com.example.structuredconcurrency.StructuredConcurrencyEvents.ForkCancelledEvent;
+import com.example.structuredconcurrency.StructuredConcurrencyEvents.ForkEndEvent;
+import com.example.structuredconcurrency.StructuredConcurrencyEvents.ForkStartEvent;
+import com.example.structuredconcurrency.StructuredConcurrencyEvents.ScopeCloseEvent;
+import com.example.structuredconcurrency.StructuredConcurrencyEvents.ScopeOpenEvent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Emits {@link StructuredConcurrencyEvents} for one StructuredTaskScope.
+ *
+ * Open the tracer before the scope, so the scope (and its stragglers) finish before the
+ * close event is written, wrap each forked task with a label, and report the scope's result
+ * through {@link #result}:
+ * <pre>
+ *   try (var trace = ScopeTracer.open("product-page");
+ *        var scope = new StructuredTaskScope.ShutdownOnFailure()) {
+ *       var product = scope.fork(trace.fork("product", () -> getProductDetails(id)));
+ *       ...
+ *       scope.join();
+ *       return trace.result(() -> { scope.throwIfFailed(); return new Page(product.get(), ...); });
+ *   }
+ * </pre>
+ * The scope outcome is what the owner reported, not derived from the forks: under
+ * ShutdownOnSuccess the losing forks are interrupted (CANCELLED) although the scope succeeded.
+ * A scope left without a report (e.g. join() was interrupted) closes as INCOMPLETE. The fork
+ * counts are kept alongside; forks cancelled before they started show as forks - startedForks.
+ *
+ * Events follow the JFR begin/end/shouldCommit pattern: when they are disabled, no field
+ * is set and nothing is committed, so the cost is a few counters per fork.
+ */
+public final class ScopeTracer implements AutoCloseable {
+
+    private final String scopeName;
+    private final ScopeCloseEvent closeEvent = new ScopeCloseEvent();
+    private final AtomicInteger forks = new AtomicInteger();
+    private final AtomicInteger startedForks = new AtomicInteger();
+    private final AtomicInteger failedForks = new AtomicInteger();
+    private final AtomicInteger cancelledForks = new AtomicInteger();
+    // Reported by the scope owner; read in close() on the same thread
+    private String outcome = StructuredConcurrencyEvents.INCOMPLETE;
+    private Throwable failure;
+
+    private ScopeTracer(String scopeName) {
+        this.scopeName = scopeName;
+    }
+
+    public static ScopeTracer open(String scopeName) {
+        ScopeTracer tracer = new ScopeTracer(scopeName);
+        ScopeOpenEvent openEvent = new ScopeOpenEvent();
+        if (openEvent.shouldCommit()) {
+            openEvent.scopeName = scopeName;
+            openEvent.commit();
+        }
+        tracer.closeEvent.begin();
+        return tracer;
+    }
+
+    /**
+     * Wraps a subtask so its start, end, outcome and cancellation are recorded.
+     */
+    public <T> Callable<T> fork(String forkLabel, Callable<T> task) {
+        forks.incrementAndGet();
+        return () -> {
+            startedForks.incrementAndGet();
+            ForkStartEvent startEvent = new ForkStartEvent();
+            if (startEvent.shouldCommit()) {
+                startEvent.scopeName = scopeName;
+                startEvent.forkLabel = forkLabel;
+                startEvent.commit();
+            }
+
+            ForkEndEvent endEvent = new ForkEndEvent();
+            endEvent.begin();
+            String outcome = StructuredConcurrencyEvents.SUCCESS;
+            Throwable failure = null;
+            try {
+                return task.call();
+            } catch (Throwable t) {
+                failure = t;
+                // Scope shutdown interrupts the remaining forks
+                boolean cancelled = t instanceof InterruptedException || Thread.currentThread().isInterrupted();
+                outcome = cancelled ? StructuredConcurrencyEvents.CANCELLED : StructuredConcurrencyEvents.FAILED;
+                (cancelled ? cancelledForks : failedForks).incrementAndGet();
+                if (cancelled) {
+                    ForkCancelledEvent cancelledEvent = new ForkCancelledEvent();
+                    if (cancelledEvent.shouldCommit()) {
+                        cancelledEvent.scopeName = scopeName;
+                        cancelledEvent.forkLabel = forkLabel;
+                        cancelledEvent.commit();
+                    }
+                }
+                throw t;
+            } finally {
+                endEvent.end();
+                if (endEvent.shouldCommit()) {
+                    endEvent.scopeName = scopeName;
+                    endEvent.forkLabel = forkLabel;
+                    endEvent.outcome = outcome;
+                    endEvent.exception = failure == null ? null : failure.toString();
+                    endEvent.commit();
+                }
+            }
+        };
+    }
+
+    /**
+     * Records that the scope produced its result.
+     */
+    public void succeeded() {
+        outcome = StructuredConcurrencyEvents.SUCCESS;
+        failure = null;
+    }
+
+    /**
+     * Records that the scope failed, or was cancelled when the cause is an InterruptedException.
+     */
+    public void failed(Throwable cause) {
+        outcome = cause instanceof InterruptedException
+                ? StructuredConcurrencyEvents.CANCELLED
+                : StructuredConcurrencyEvents.FAILED;
+        failure = cause;
+    }
+
+    /**
+     * Computes the scope result (e.g. throwIfFailed() then the fork values, or ShutdownOnSuccess.result())
+     * and records its outcome; an ExecutionException is recorded by its cause and rethrown as is.
+     */
+    public <T> T result(Callable<T> scopeResult) throws Exception {
+        try {
+            T value = scopeResult.call();
+            succeeded();
+            return value;
+        } catch (Exception e) {
+            failed(e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e);
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        closeEvent.end();
+        if (closeEvent.shouldCommit()) {
+            closeEvent.scopeName = scopeName;
+            closeEvent.outcome = outcome;
+            closeEvent.exception = failure == null ? null : failure.toString();
+            closeEvent.forks = forks.get();
+            closeEvent.startedForks = startedForks.get();
+            closeEvent.failedForks = failedForks.get();
+            closeEvent.cancelledForks = cancelledForks.get();
+            closeEvent.commit();
+        }
+    }
+}
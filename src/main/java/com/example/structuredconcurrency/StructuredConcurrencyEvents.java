@@ -0,0 +1,110 @@
+package com.example.structuredconcurrency;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Custom JFR events for StructuredTaskScope lifecycles, emitted by {@link ScopeTracer}.
+ *
+ * They show up in JMC under "Structured Concurrency", next to the jdk.VirtualThread* events,
+ * so a cancelled fork can be tied back to its scope. Settings live in jfr-config/virtual-threads.jfc.
+ */
+public final class StructuredConcurrencyEvents {
+
+    private StructuredConcurrencyEvents() {}
+
+    // Outcomes used by scope and fork events
+    public static final String SUCCESS = "SUCCESS";
+    public static final String FAILED = "FAILED";
+    public static final String CANCELLED = "CANCELLED";
+    // Scope only: closed before the owner reported a result
+    public static final String INCOMPLETE = "INCOMPLETE";
+
+    @Name("com.example.ScopeOpen")
+    @Label("Scope Open")
+    @Category("Structured Concurrency")
+    @Description("A StructuredTaskScope was opened")
+    @StackTrace(false)
+    static final class ScopeOpenEvent extends Event {
+        @Label("Scope Name")
+        String scopeName;
+    }
+
+    @Name("com.example.ScopeClose")
+    @Label("Scope Close")
+    @Category("Structured Concurrency")
+    @Description("A StructuredTaskScope was closed; the duration covers open to close")
+    @StackTrace(false)
+    static final class ScopeCloseEvent extends Event {
+        @Label("Scope Name")
+        String scopeName;
+
+        @Label("Outcome")
+        @Description("Result reported by the scope owner, independent of the fork outcomes")
+        String outcome;
+
+        @Label("Exception")
+        String exception;
+
+        @Label("Forks")
+        int forks;
+
+        @Label("Started Forks")
+        @Description("Forks that started running; the others were cancelled before they ran")
+        int startedForks;
+
+        @Label("Failed Forks")
+        int failedForks;
+
+        @Label("Cancelled Forks")
+        int cancelledForks;
+    }
+
+    @Name("com.example.ForkStart")
+    @Label("Fork Start")
+    @Category("Structured Concurrency")
+    @Description("A forked subtask started running")
+    @StackTrace(false)
+    static final class ForkStartEvent extends Event {
+        @Label("Scope Name")
+        String scopeName;
+
+        @Label("Fork Label")
+        String forkLabel;
+    }
+
+    @Name("com.example.ForkEnd")
+    @Label("Fork End")
+    @Category("Structured Concurrency")
+    @Description("A forked subtask finished; the duration covers start to end")
+    @StackTrace(false)
+    static final class ForkEndEvent extends Event {
+        @Label("Scope Name")
+        String scopeName;
+
+        @Label("Fork Label")
+        String forkLabel;
+
+        @Label("Outcome")
+        String outcome;
+
+        @Label("Exception")
+        String exception;
+    }
+
+    @Name("com.example.ForkCancelled")
+    @Label("Fork Cancelled")
+    @Category("Structured Concurrency")
+    @Description("A forked subtask was interrupted, typically by scope shutdown (ShutdownOnFailure/ShutdownOnSuccess)")
+    static final class ForkCancelledEvent extends Event {
+        @Label("Scope Name")
+        String scopeName;
+
+        @Label("Fork Label")
+        String forkLabel;
+    }
+}
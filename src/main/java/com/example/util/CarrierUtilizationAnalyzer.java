@@ -0,0 +1,305 @@
+package com.example.util;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Estimates how busy the virtual thread scheduler's carrier threads were, window by window,
+ * from a JFR recording (e.g. one made with virtual-threads.jfc).
+ *
+ * Per window the carrier capacity (parallelism x window length) is split into:
+ *  - busy:   jdk.ExecutionSample hits on virtual threads and on carrier threads, as a share of the
+ *            samples the window could hold (see below)
+ *  - pinned: jdk.VirtualThreadPinned time overlapping the window (the carrier is held but not running)
+ *  - idle:   whatever is left
+ * Every window from the first to the last event is reported; windows without events are fully idle.
+ *
+ * JFR samples at most 5 running Java threads per period, so a window can hold at most
+ * (window / period) x min(5, parallelism) samples and busy is measured against that. With more
+ * than 5 carriers this biases busy upwards: 5 running carriers already fill every sample slot,
+ * so busy reads 100% from 5 running carriers up to all of them. Pinned time is exact.
+ *
+ * On JDK 21, samples and pinned events are attributed to the virtual thread, not to the
+ * carrier it ran on, so busy/pinned/idle are pool-level fractions. Carriers themselves
+ * (ForkJoinPool-N-worker-M) are listed with the samples taken while they ran scheduler code.
+ *
+ * A window is flagged as starved when carriers were (almost) fully pinned or busy while
+ * virtual threads became runnable in it (starts, sleep/park completions), i.e. work was queued.
+ */
+public class CarrierUtilizationAnalyzer {
+
+    private static final Duration DEFAULT_WINDOW = Duration.ofMillis(100);
+    // Matches the jdk.ExecutionSample period in virtual-threads.jfc
+    private static final Duration DEFAULT_SAMPLE_PERIOD = Duration.ofMillis(10);
+    private static final double DEFAULT_SATURATION = 0.9;
+    // Threads the JFR sampler walks per period (JfrThreadSampler, Java threads)
+    private static final int MAX_THREADS_PER_SAMPLE = 5;
+    private static final Pattern DEFAULT_CARRIER_PATTERN = Pattern.compile("ForkJoinPool-\\d+-worker-\\d+");
+
+    private final long windowNanos;
+    private final int parallelism;
+    private final double saturation;
+    private final Duration fallbackSamplePeriod;
+    private final Pattern carrierPattern;
+
+    private CarrierUtilizationAnalyzer(Builder builder) {
+        this.windowNanos = builder.window.toNanos();
+        this.parallelism = builder.parallelism;
+        this.saturation = builder.saturation;
+        this.fallbackSamplePeriod = builder.samplePeriod;
+        this.carrierPattern = builder.carrierPattern;
+    }
+
+    public Report analyze(Path jfrFile) throws IOException {
+        Map<Long, Window> windows = new HashMap<>();
+        Map<String, Long> carrierSamples = new TreeMap<>();
+        // Sample periods from jdk.ActiveSetting, by event type id; resolved once the sample type id is known
+        Map<Long, Duration> periodsByTypeId = new HashMap<>();
+        long sampleTypeId = -1;
+
+        // Single pass: samples are counted per window and turned into busy time at the end
+        try (RecordingFile recordingFile = new RecordingFile(jfrFile)) {
+            while (recordingFile.hasMoreEvents()) {
+                RecordedEvent event = recordingFile.readEvent();
+                switch (event.getEventType().getName()) {
+                    case "jdk.ExecutionSample" -> {
+                        sampleTypeId = event.getEventType().getId();
+                        RecordedThread thread = event.getThread("sampledThread");
+                        if (thread == null) continue;
+                        boolean carrier = isCarrier(thread);
+                        if (!thread.isVirtual() && !carrier) continue;
+                        if (carrier) carrierSamples.merge(thread.getJavaName(), 1L, Long::sum);
+                        window(windows, epochNanos(event.getStartTime())).samples++;
+                    }
+                    case "jdk.ActiveSetting" -> {
+                        if (!"period".equals(event.getString("name"))) continue;
+                        Duration parsed = parseDuration(event.getString("value"));
+                        // Several recordings may run at once; the shortest period wins
+                        if (parsed != null) periodsByTypeId.merge(event.getLong("id"), parsed,
+                                (a, b) -> a.compareTo(b) <= 0 ? a : b);
+                    }
+                    case "jdk.VirtualThreadPinned" -> addPinned(windows,
+                            epochNanos(event.getStartTime()), epochNanos(event.getEndTime()));
+                    case "jdk.VirtualThreadStart" -> window(windows, epochNanos(event.getStartTime())).runnable++;
+                    case "jdk.ThreadSleep", "jdk.ThreadPark" -> {
+                        RecordedThread thread = event.getThread();
+                        if (thread != null && thread.isVirtual()) {
+                            window(windows, epochNanos(event.getEndTime())).runnable++;
+                        }
+                    }
+                    default -> { }
+                }
+            }
+        }
+
+        long samplePeriodNanos = periodsByTypeId.getOrDefault(sampleTypeId, fallbackSamplePeriod).toNanos();
+        long capacityNanos = parallelism * windowNanos;
+        double sampleSlots = (double) windowNanos / samplePeriodNanos * Math.min(MAX_THREADS_PER_SAMPLE, parallelism);
+        // Windows are only created by events; a slot without any between the first and the last
+        // window had nothing running or pinned, so it is reported (and averaged) as idle
+        long firstSlot = windows.keySet().stream().mapToLong(Long::longValue).min().orElse(0);
+        long lastSlot = windows.keySet().stream().mapToLong(Long::longValue).max().orElse(-1);
+        Window empty = new Window();
+        List<WindowStats> rows = new ArrayList<>();
+        for (long slot = firstSlot; slot <= lastSlot; slot++) {
+            Window w = windows.getOrDefault(slot, empty);
+            double pinned = Math.min(1.0, (double) w.pinnedNanos / capacityNanos);
+            double busy = Math.min(1.0 - pinned, w.samples / sampleSlots);
+            double idle = Math.max(0.0, 1.0 - busy - pinned);
+            String flag = "";
+            if (w.runnable > 0 && pinned >= saturation) {
+                flag = "ALL_PINNED";
+            } else if (w.runnable > 0 && busy + pinned >= saturation) {
+                flag = "SATURATED";
+            }
+            rows.add(new WindowStats(slot * windowNanos, busy, pinned, idle, w.runnable, flag));
+        }
+
+        return new Report(parallelism, windowNanos, samplePeriodNanos, rows, carrierSamples);
+    }
+
+    private boolean isCarrier(RecordedThread thread) {
+        String name = thread.getJavaName();
+        return !thread.isVirtual() && name != null && carrierPattern.matcher(name).matches();
+    }
+
+    // Spreads a pinned interval over every window it overlaps
+    private void addPinned(Map<Long, Window> windows, long startNanos, long endNanos) {
+        long slot = startNanos / windowNanos;
+        long cursor = startNanos;
+        while (cursor < endNanos) {
+            long slotEnd = (slot + 1) * windowNanos;
+            long until = Math.min(endNanos, slotEnd);
+            windows.computeIfAbsent(slot, k -> new Window()).pinnedNanos += until - cursor;
+            cursor = until;
+            slot++;
+        }
+    }
+
+    private Window window(Map<Long, Window> windows, long timeNanos) {
+        return windows.computeIfAbsent(timeNanos / windowNanos, k -> new Window());
+    }
+
+    // Parses JFR setting values such as "20 ms" or "1 s"
+    private static Duration parseDuration(String value) {
+        String[] parts = value.trim().split("\\s+");
+        if (parts.length != 2) return null;
+        try {
+            long amount = Long.parseLong(parts[0]);
+            return switch (parts[1]) {
+                case "ns" -> Duration.ofNanos(amount);
+                case "us" -> Duration.ofNanos(amount * 1_000);
+                case "ms" -> Duration.ofMillis(amount);
+                case "s" -> Duration.ofSeconds(amount);
+                default -> null;
+            };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static long epochNanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    private static class Window {
+        long samples;
+        long pinnedNanos;
+        long runnable;
+    }
+
+    /**
+     * Utilization of the carrier pool in one window; fractions are of parallelism x window.
+     */
+    public record WindowStats(long startEpochNanos, double busy, double pinned, double idle,
+                              long runnableEvents, String starvation) {
+
+        public boolean isStarved() {
+            return !starvation.isEmpty();
+        }
+    }
+
+    public record Report(int parallelism, long windowNanos, long samplePeriodNanos,
+                         List<WindowStats> windows, Map<String, Long> carrierSamples) {
+
+        public void printReport() {
+            System.out.println("\n🚚 Carrier Thread Utilization");
+            System.out.println("=============================");
+            System.out.printf("Parallelism: %d | Window: %d ms | Sample period: %d ms%n",
+                    parallelism, windowNanos / 1_000_000, samplePeriodNanos / 1_000_000);
+
+            if (windows.isEmpty()) {
+                System.out.println("No execution samples or pinning events found.");
+                return;
+            }
+
+            // Over every window, so idle stretches pull the averages down
+            double busy = windows.stream().mapToDouble(WindowStats::busy).average().orElse(0);
+            double pinned = windows.stream().mapToDouble(WindowStats::pinned).average().orElse(0);
+            System.out.printf("Average busy: %.1f%% | pinned: %.1f%% | idle: %.1f%%%n",
+                    busy * 100, pinned * 100, Math.max(0, 1 - busy - pinned) * 100);
+
+            long origin = windows.get(0).startEpochNanos();
+            System.out.println("\n offset_ms    busy  pinned    idle  runnable  flag");
+            for (WindowStats w : windows) {
+                System.out.printf("%10d  %5.1f%%  %5.1f%%  %5.1f%%  %8d  %s%n",
+                        (w.startEpochNanos() - origin) / 1_000_000,
+                        w.busy() * 100, w.pinned() * 100, w.idle() * 100,
+                        w.runnableEvents(), w.isStarved() ? "⚠️ " + w.starvation() : "");
+            }
+
+            long starved = windows.stream().filter(WindowStats::isStarved).count();
+            System.out.printf("%n⚠️ Starved windows: %d of %d%n", starved, windows.size());
+
+            if (!carrierSamples.isEmpty()) {
+                System.out.println("\nCarrier threads seen (samples while running scheduler code):");
+                carrierSamples.forEach((name, count) -> System.out.printf("  %-30s %d%n", name, count));
+            }
+        }
+
+        public void writeCsv(Path csvFile) throws IOException {
+            Path parent = csvFile.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            try (BufferedWriter writer = Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8)) {
+                writer.write("epoch_ms,busy,pinned,idle,runnable_events,starvation");
+                writer.newLine();
+                for (WindowStats w : windows) {
+                    writer.write(String.format(Locale.ROOT, "%d,%.4f,%.4f,%.4f,%d,%s",
+                            w.startEpochNanos() / 1_000_000, w.busy(), w.pinned(), w.idle(),
+                            w.runnableEvents(), w.starvation()));
+                    writer.newLine();
+                }
+            }
+            System.out.println("💾 Carrier utilization CSV: " + csvFile.toAbsolutePath());
+        }
+    }
+
+    // ======================
+    // Builder
+    // ======================
+    public static class Builder {
+        private Duration window = DEFAULT_WINDOW;
+        private int parallelism = Integer.getInteger("jdk.virtualThreadScheduler.parallelism",
+                Runtime.getRuntime().availableProcessors());
+        private double saturation = DEFAULT_SATURATION;
+        private Duration samplePeriod = DEFAULT_SAMPLE_PERIOD;
+        private Pattern carrierPattern = DEFAULT_CARRIER_PATTERN;
+
+        public Builder window(Duration window) {
+            this.window = window;
+            return this;
+        }
+
+        /**
+         * Carrier count of the recorded process (defaults to this JVM's scheduler parallelism).
+         */
+        public Builder parallelism(int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Fraction of capacity (0-1) above which a window with runnable work counts as starved.
+         */
+        public Builder saturation(double saturation) {
+            this.saturation = saturation;
+            return this;
+        }
+
+        /**
+         * Sampling period used when the recording does not carry its jdk.ExecutionSample settings.
+         */
+        public Builder samplePeriod(Duration samplePeriod) {
+            this.samplePeriod = samplePeriod;
+            return this;
+        }
+
+        public Builder carrierPattern(Pattern carrierPattern) {
+            this.carrierPattern = carrierPattern;
+            return this;
+        }
+
+        public CarrierUtilizationAnalyzer build() {
+            if (parallelism <= 0 || window.isZero() || window.isNegative()) {
+                throw new IllegalArgumentException("Parallelism and window must be positive");
+            }
+            return new CarrierUtilizationAnalyzer(this);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.util;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exports JFR stack traces as collapsed ("folded") stacks, the input format of
+ * flamegraph.pl, speedscope and most other flame graph tools:
+ *
+ * <pre>
+ *   java.lang.Thread.run;com.example.Foo.bar;com.example.Foo.baz 42
+ * </pre>
+ *
+ * Frames go root first, separated by ';', followed by a space and an integer weight.
+ * The recording is read event by event, so heap use grows with the number of
+ * distinct stacks, not with the size of the recording.
+ */
+public class FoldedStackExporter {
+
+    // Event types exported by default, each one goes into its own file
+    public static final List<String> DEFAULT_EVENT_TYPES = List.of(
+            "jdk.ExecutionSample",
+            "jdk.VirtualThreadPinned",
+            "jdk.JavaMonitorEnter",
+            "jdk.ThreadPark");
+
+    private static final int DEFAULT_MAX_DEPTH = 64;
+
+    /**
+     * How a stack is weighted in the output.
+     * DURATION is written in microseconds; events without a duration
+     * (e.g. jdk.ExecutionSample) always fall back to SAMPLES.
+     */
+    public enum Weight { SAMPLES, DURATION }
+
+    private final List<String> eventTypes;
+    private final Weight weight;
+    private final int maxDepth;
+    private final boolean lineNumbers;
+
+    private FoldedStackExporter(Builder builder) {
+        this.eventTypes = List.copyOf(builder.eventTypes);
+        this.weight = builder.weight;
+        this.maxDepth = builder.maxDepth;
+        this.lineNumbers = builder.lineNumbers;
+    }
+
+    /**
+     * Streams the recording once and writes one "<recording>-<event>.folded" file
+     * per event type that had at least one stack.
+     *
+     * @return the files written, keyed by event type
+     */
+    public Map<String, Path> export(Path jfrFile, Path outputDir) throws IOException {
+        Map<String, Map<String, long[]>> stacksByType = new HashMap<>();
+        for (String type : eventTypes) {
+            stacksByType.put(type, new HashMap<>());
+        }
+
+        StringBuilder key = new StringBuilder(1024);
+        try (RecordingFile recordingFile = new RecordingFile(jfrFile)) {
+            while (recordingFile.hasMoreEvents()) {
+                RecordedEvent event = recordingFile.readEvent();
+                Map<String, long[]> stacks = stacksByType.get(event.getEventType().getName());
+                if (stacks == null) continue;
+
+                RecordedStackTrace stackTrace = event.getStackTrace();
+                if (stackTrace == null || stackTrace.getFrames().isEmpty()) continue;
+
+                fold(stackTrace, key);
+                stacks.computeIfAbsent(key.toString(), k -> new long[1])[0] += weightOf(event);
+            }
+        }
+
+        Files.createDirectories(outputDir);
+        String baseName = jfrFile.getFileName().toString().replaceFirst("\\.jfr$", "");
+        Map<String, Path> written = new LinkedHashMap<>();
+
+        for (String type : eventTypes) {
+            Map<String, long[]> stacks = stacksByType.get(type);
+            if (stacks.isEmpty()) continue;
+
+            String shortName = type.substring(type.lastIndexOf('.') + 1);
+            Path out = outputDir.resolve(baseName + "-" + shortName + ".folded");
+            try (BufferedWriter writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, long[]> entry : stacks.entrySet()) {
+                    long value = entry.getValue()[0];
+                    if (value <= 0) continue;
+                    writer.write(entry.getKey());
+                    writer.write(' ');
+                    writer.write(Long.toString(value));
+                    writer.newLine();
+                }
+            }
+            written.put(type, out);
+            System.out.println("🔥 Folded stacks for " + type + " (" + stacks.size() + " stacks): " + out.toAbsolutePath());
+        }
+
+        if (written.isEmpty()) {
+            System.out.println("⚠️ No stack traces found for " + eventTypes);
+        }
+        return written;
+    }
+
+    // Builds "root;...;leaf" into the reusable buffer
+    private void fold(RecordedStackTrace stackTrace, StringBuilder key) {
+        key.setLength(0);
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        int depth = Math.min(frames.size(), maxDepth);
+        if (stackTrace.isTruncated() || depth < frames.size()) {
+            key.append("[truncated];");
+        }
+        for (int i = depth - 1; i >= 0; i--) {
+            RecordedFrame frame = frames.get(i);
+            String label = lineNumbers ? JFRStackUtil.frameLabel(frame) : JFRStackUtil.methodLabel(frame);
+            // ';' and ' ' are separators in the folded format
+            for (int c = 0; c < label.length(); c++) {
+                char ch = label.charAt(c);
+                key.append(ch == ';' || ch == ' ' ? '_' : ch);
+            }
+            if (i > 0) key.append(';');
+        }
+    }
+
+    private long weightOf(RecordedEvent event) {
+        if (weight == Weight.SAMPLES || !event.hasField("duration")) {
+            return 1;
+        }
+        return event.getDuration().toNanos() / 1_000;
+    }
+
+    // ======================
+    // Builder
+    // ======================
+    public static class Builder {
+        private List<String> eventTypes = new ArrayList<>(DEFAULT_EVENT_TYPES);
+        private Weight weight = Weight.SAMPLES;
+        private int maxDepth = DEFAULT_MAX_DEPTH;
+        private boolean lineNumbers = false;
+
+        public Builder eventTypes(List<String> eventTypes) {
+            this.eventTypes = new ArrayList<>(eventTypes);
+            return this;
+        }
+
+        public Builder weight(Weight weight) {
+            this.weight = weight;
+            return this;
+        }
+
+        public Builder maxDepth(int maxDepth) {
+            this.maxDepth = maxDepth;
+            return this;
+        }
+
+        public Builder lineNumbers(boolean lineNumbers) {
+            this.lineNumbers = lineNumbers;
+            return this;
+        }
+
+        public FoldedStackExporter build() {
+            return new FoldedStackExporter(this);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ExecutorService decorator that records submit rate, in-flight tasks, submit-to-start delay,
+ * run time and failures (see {@link TaskMetrics}). Works the same for virtual-thread-per-task
+ * and pooled platform executors, so the two can be compared on one dashboard:
+ * <pre>
+ *   ExecutorService executor = InstrumentedExecutorService.wrap(
+ *           Executors.newVirtualThreadPerTaskExecutor(), "batch");
+ * </pre>
+ * Without a registry argument, meters go to {@link Metrics#globalRegistry}, which
+ * {@link PrometheusMetricsInitializer} feeds; until then they are no-ops.
+ * Use one name per executor: a second wrapper with the same name shares the counters
+ * but not the in-flight gauge.
+ *
+ * submit/invokeAll/invokeAny build their futures here (AbstractExecutorService) and pass them
+ * through {@link #execute}, so every path is measured the same way. A future cancelled before
+ * it starts still reaches the delegate's queue; it leaves the in-flight gauge when the delegate
+ * dequeues it (it then returns at once) or when shutdownNow drops it.
+ */
+public class InstrumentedExecutorService extends AbstractExecutorService {
+
+    private final ExecutorService delegate;
+    private final TaskMetrics metrics;
+
+    private InstrumentedExecutorService(ExecutorService delegate, String name, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.metrics = new TaskMetrics(name, registry);
+    }
+
+    public static ExecutorService wrap(ExecutorService delegate, String name) {
+        return wrap(delegate, name, Metrics.globalRegistry);
+    }
+
+    public static ExecutorService wrap(ExecutorService delegate, String name, MeterRegistry registry) {
+        return new InstrumentedExecutorService(delegate, name, registry);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        TaskMetrics.TrackedTask task = metrics.wrap(command);
+        try {
+            delegate.execute(task);
+        } catch (RejectedExecutionException e) {
+            metrics.onRejected(task);
+            throw e;
+        }
+        metrics.onAccepted();
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    /**
+     * Returns the tasks as submitted by the caller (not the metric wrappers) and takes them out of flight.
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> pending = delegate.shutdownNow();
+        List<Runnable> unwrapped = new ArrayList<>(pending.size());
+        for (Runnable runnable : pending) {
+            if (runnable instanceof TaskMetrics.TrackedTask task) {
+                task.drop();
+                unwrapped.add(task.task());
+            } else {
+                unwrapped.add(runnable);
+            }
+        }
+        return unwrapped;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * ThreadFactory decorator with the same meters as {@link InstrumentedExecutorService}, where a
+ * "task" is a thread: submitted = created, queue delay = newThread() until the thread runs,
+ * duration = thread run time. Suited to thread-per-task use such as
+ * {@code Executors.newThreadPerTaskExecutor(factory)} or {@code Thread.ofVirtual().factory()}:
+ * <pre>
+ *   ThreadFactory factory = InstrumentedThreadFactory.wrap(Thread.ofVirtual().factory(), "per-task");
+ * </pre>
+ * Behind a pooled executor each thread is a long-lived worker, so the numbers describe workers.
+ */
+public class InstrumentedThreadFactory implements ThreadFactory {
+
+    private final ThreadFactory delegate;
+    private final TaskMetrics metrics;
+
+    private InstrumentedThreadFactory(ThreadFactory delegate, String name, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.metrics = new TaskMetrics(name, registry);
+    }
+
+    public static ThreadFactory wrap(ThreadFactory delegate, String name) {
+        return wrap(delegate, name, Metrics.globalRegistry);
+    }
+
+    public static ThreadFactory wrap(ThreadFactory delegate, String name, MeterRegistry registry) {
+        return new InstrumentedThreadFactory(delegate, name, registry);
+    }
+
+    @Override
+    public Thread newThread(Runnable task) {
+        TaskMetrics.TrackedTask tracked = metrics.wrap(task);
+        Thread thread = delegate.newThread(tracked);
+        if (thread == null) {
+            // The delegate refused to create a thread, so the task will never run
+            metrics.onRejected(tracked);
+        } else {
+            metrics.onAccepted();
+        }
+        return thread;
+    }
+}
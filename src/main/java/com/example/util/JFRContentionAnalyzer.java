@@ -0,0 +1,182 @@
+package com.example.util;
+
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups lock and park events by the class of the contended object, to show which lock
+ * to stripe or replace first.
+ *
+ *  - jdk.JavaMonitorEnter: blocked on a synchronized monitor, keyed by monitorClass, owner = previousOwner
+ *  - jdk.JavaMonitorWait:  Object.wait(), keyed by monitorClass, owner = notifier
+ *  - jdk.ThreadPark:       LockSupport.park (ReentrantLock, queues, ...), keyed by parkedClass
+ *
+ * For each key the report gives total blocked time, event count, distinct waiter threads
+ * and the top owner/waiter-stack pairs by blocked time. JFR records only the owner thread
+ * (not its stack), so a pair is "owner thread name" + "waiter call path".
+ */
+public class JFRContentionAnalyzer {
+
+    private static final int DEFAULT_STACK_DEPTH = 4;
+    private static final int DEFAULT_TOP_PAIRS = 3;
+    private static final int MAX_PAIRS_PER_KEY = 256;
+    private static final String OTHER_PAIR = "other";
+
+    private final int stackDepth;
+    private final int topPairs;
+
+    private JFRContentionAnalyzer(Builder builder) {
+        this.stackDepth = builder.stackDepth;
+        this.topPairs = builder.topPairs;
+    }
+
+    public List<Contention> analyze(Path jfrFile) throws IOException {
+        Map<String, Accumulator> byKey = new HashMap<>();
+
+        try (RecordingFile recordingFile = new RecordingFile(jfrFile)) {
+            while (recordingFile.hasMoreEvents()) {
+                RecordedEvent event = recordingFile.readEvent();
+                String kind;
+                String classField;
+                String ownerField;
+                switch (event.getEventType().getName()) {
+                    case "jdk.JavaMonitorEnter" -> { kind = "monitor-enter"; classField = "monitorClass"; ownerField = "previousOwner"; }
+                    case "jdk.JavaMonitorWait" -> { kind = "monitor-wait"; classField = "monitorClass"; ownerField = "notifier"; }
+                    case "jdk.ThreadPark" -> { kind = "park"; classField = "parkedClass"; ownerField = null; }
+                    default -> { continue; }
+                }
+
+                RecordedClass type = event.getClass(classField);
+                String key = kind + " " + (type != null ? type.getName() : "(unknown)");
+                Accumulator acc = byKey.computeIfAbsent(key, k -> new Accumulator(kind));
+
+                long nanos = event.getDuration().toNanos();
+                acc.events++;
+                acc.blockedNanos += nanos;
+
+                RecordedThread waiter = event.getThread();
+                if (waiter != null) {
+                    acc.waiters.put(waiter.getJavaThreadId(), 1, 0);
+                }
+
+                RecordedThread owner = ownerField != null ? event.getThread(ownerField) : null;
+                String pair = threadName(owner) + " -> " + callPath(event.getStackTrace());
+                long[] stats = acc.pairs.get(pair);
+                if (stats == null) {
+                    String pairKey = acc.pairs.size() < MAX_PAIRS_PER_KEY ? pair : OTHER_PAIR;
+                    stats = acc.pairs.computeIfAbsent(pairKey, k -> new long[2]);
+                }
+                stats[0]++;
+                stats[1] += nanos;
+            }
+        }
+
+        List<Contention> result = new ArrayList<>();
+        byKey.forEach((key, acc) -> {
+            List<OwnerWaiterPair> pairs = acc.pairs.entrySet().stream()
+                    .sorted((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]))
+                    .limit(topPairs)
+                    .map(e -> new OwnerWaiterPair(e.getKey(), e.getValue()[0], e.getValue()[1]))
+                    .toList();
+            result.add(new Contention(key, acc.kind, acc.blockedNanos, acc.events, acc.waiters.size(), pairs));
+        });
+        result.sort((a, b) -> Long.compare(b.blockedNanos(), a.blockedNanos()));
+        return result;
+    }
+
+    public static void printReport(List<Contention> contentions) {
+        System.out.println("\n🔒 Lock & Park Contention Report");
+        System.out.println("=================================");
+        if (contentions.isEmpty()) {
+            System.out.println("No monitor or park events found.");
+            return;
+        }
+        for (Contention c : contentions) {
+            System.out.printf("%n%s%n  blocked: %.1f ms | events: %d | waiters: %d%n",
+                    c.key(), c.blockedNanos() / 1_000_000.0, c.events(), c.waiterThreads());
+            for (OwnerWaiterPair pair : c.topPairs()) {
+                System.out.printf("    %8.1f ms %6dx  %s%n", pair.blockedNanos() / 1_000_000.0, pair.events(), pair.ownerAndWaiter());
+            }
+        }
+    }
+
+    private static String threadName(RecordedThread thread) {
+        if (thread == null) return "-";
+        String name = thread.getJavaName();
+        if (name == null || name.isEmpty()) {
+            return (thread.isVirtual() ? "virtual#" : "thread#") + thread.getJavaThreadId();
+        }
+        return name;
+    }
+
+    // Top application frames of the waiter, innermost first
+    private String callPath(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) return JFRStackUtil.UNKNOWN_SITE;
+        StringBuilder path = new StringBuilder();
+        int added = 0;
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (!frame.isJavaFrame() || JFRStackUtil.isJdkFrame(frame)) continue;
+            if (added > 0) path.append(" <- ");
+            path.append(JFRStackUtil.frameLabel(frame));
+            if (++added == stackDepth) break;
+        }
+        if (added == 0 && !stackTrace.getFrames().isEmpty()) {
+            return JFRStackUtil.frameLabel(stackTrace.getFrames().get(0));
+        }
+        return added == 0 ? JFRStackUtil.UNKNOWN_SITE : path.toString();
+    }
+
+    private static class Accumulator {
+        final String kind;
+        long events;
+        long blockedNanos;
+        // Used as a set of waiter thread IDs
+        final LongLongHashMap waiters = new LongLongHashMap(64);
+        final Map<String, long[]> pairs = new HashMap<>();
+
+        Accumulator(String kind) {
+            this.kind = kind;
+        }
+    }
+
+    /**
+     * Contention on one class of monitor/parked object.
+     */
+    public record Contention(String key, String kind, long blockedNanos, long events,
+                             int waiterThreads, List<OwnerWaiterPair> topPairs) {}
+
+    public record OwnerWaiterPair(String ownerAndWaiter, long events, long blockedNanos) {}
+
+    // ======================
+    // Builder
+    // ======================
+    public static class Builder {
+        private int stackDepth = DEFAULT_STACK_DEPTH;
+        private int topPairs = DEFAULT_TOP_PAIRS;
+
+        public Builder stackDepth(int stackDepth) {
+            this.stackDepth = stackDepth;
+            return this;
+        }
+
+        public Builder topPairs(int topPairs) {
+            this.topPairs = topPairs;
+            return this;
+        }
+
+        public JFRContentionAnalyzer build() {
+            return new JFRContentionAnalyzer(this);
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.example.util;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Always-on "flight recorder" mode for production runs.
+ *
+ * Unlike {@link JFRUtilWithJFC#start()}, which makes a one-off recording and deletes old
+ * .jfr files, this keeps one continuous on-disk recording bounded by maxSize and maxAge
+ * (JFR rotates and drops whole chunks), and dumps the retained window, i.e. the last
+ * maxAge of data, when a trigger fires:
+ *  - pinning rate: jdk.VirtualThreadPinned events per second above a threshold
+ *  - latency SLO: more than N calls per second reported slower than the SLO via {@link #recordLatency}
+ *  - carrier starvation: every carrier busy (running or pinned) while virtual threads wait in
+ *    the scheduler queues, for N consecutive checks (see {@link Builder#carrierStarvationTrigger})
+ *  - custom conditions registered with {@link Builder#trigger}
+ *
+ * Triggers are evaluated once per check interval on a single daemon thread. The only extra
+ * event stream counts pinned events without stack traces, and latency reporting is a
+ * {@link LongAdder} increment, so the overhead stays low under full load. The default settings
+ * are jfr-config/virtual-threads-low-overhead.jfc (thresholds on park/monitor events, stack
+ * traces only where they pay off); pass virtual-threads.jfc for full detail. A cooldown between
+ * dumps and a cap on kept dump files prevent a dump storm from filling the disk.
+ */
+public class JFRFlightRecorder implements AutoCloseable {
+
+    private static final String DEFAULT_JFC_PATH = "jfr-config/virtual-threads-low-overhead.jfc";
+    private static final String DEFAULT_OUTPUT_DIR = "jfr-dumps";
+    private static final String DEFAULT_RECORDING_NAME = "FlightRecorder";
+    private static final long DEFAULT_MAX_SIZE_BYTES = 250L * 1024 * 1024;
+    private static final Duration DEFAULT_MAX_AGE = Duration.ofMinutes(5);
+    private static final Duration DEFAULT_CHECK_INTERVAL = Duration.ofSeconds(1);
+    private static final Duration DEFAULT_COOLDOWN = Duration.ofMinutes(5);
+    private static final int DEFAULT_MAX_DUMPS = 10;
+
+    private final String jfcPath;
+    private final String outputDir;
+    private final String recordingName;
+    private final long maxSizeBytes;
+    private final Duration maxAge;
+    private final Duration checkInterval;
+    private final Duration cooldown;
+    private final int maxDumps;
+    private final double pinnedEventsPerSecondThreshold;
+    private final Duration pinnedThreshold;
+    private final Duration latencySlo;
+    private final double sloBreachesPerSecondThreshold;
+    private final Map<String, BooleanSupplier> customTriggers;
+    private final int starvationChecks;
+
+    private final LongAdder pinnedEvents = new LongAdder();
+    private final LongAdder sloBreaches = new LongAdder();
+    private final Deque<Path> dumps = new ArrayDeque<>();
+
+    private Recording recording;
+    private RecordingStream pinningStream;
+    private ScheduledExecutorService checker;
+    private long lastPinnedCount;
+    private long lastBreachCount;
+    private long lastDumpNanos;
+    private ForkJoinPool scheduler;
+    private int starvedChecksInRow;
+
+    private JFRFlightRecorder(Builder builder) {
+        this.jfcPath = builder.jfcPath;
+        this.outputDir = builder.outputDir;
+        this.recordingName = builder.recordingName;
+        this.maxSizeBytes = builder.maxSizeBytes;
+        this.maxAge = builder.maxAge;
+        this.checkInterval = builder.checkInterval;
+        this.cooldown = builder.cooldown;
+        this.maxDumps = builder.maxDumps;
+        this.pinnedEventsPerSecondThreshold = builder.pinnedEventsPerSecondThreshold;
+        this.pinnedThreshold = builder.pinnedThreshold;
+        this.latencySlo = builder.latencySlo;
+        this.sloBreachesPerSecondThreshold = builder.sloBreachesPerSecondThreshold;
+        this.customTriggers = Map.copyOf(builder.customTriggers);
+        this.starvationChecks = builder.starvationChecks;
+    }
+
+    // ======================
+    // Lifecycle
+    // ======================
+
+    public synchronized void start() {
+        if (recording != null) {
+            System.out.println("⚠️ Flight recorder already running");
+            return;
+        }
+        try {
+            Configuration config = jfcPath != null
+                    ? Configuration.create(Paths.get(jfcPath))
+                    : Configuration.getConfiguration("default");
+            recording = new Recording(config);
+        } catch (IOException | ParseException e) {
+            throw new RuntimeException("Failed to load JFR configuration: " + e.getMessage(), e);
+        }
+
+        recording.setName(recordingName);
+        recording.setToDisk(true);
+        recording.setMaxSize(maxSizeBytes);
+        recording.setMaxAge(maxAge);
+        recording.start();
+
+        if (pinnedEventsPerSecondThreshold > 0) {
+            pinningStream = new RecordingStream();
+            pinningStream.enable("jdk.VirtualThreadPinned").withoutStackTrace().withThreshold(pinnedThreshold);
+            pinningStream.setReuse(true);
+            pinningStream.setOrdered(false);
+            pinningStream.onEvent("jdk.VirtualThreadPinned", event -> pinnedEvents.increment());
+            pinningStream.startAsync();
+        }
+
+        if (starvationChecks > 0) {
+            scheduler = VirtualThreadInternals.defaultScheduler();
+            if (scheduler == null) {
+                System.out.println("⚠️ Virtual thread scheduler not accessible, carrier starvation trigger disabled "
+                        + "(run with --add-opens java.base/java.lang=ALL-UNNAMED)");
+            }
+        }
+
+        checker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "jfr-flight-recorder-trigger");
+            t.setDaemon(true);
+            return t;
+        });
+        long intervalMs = checkInterval.toMillis();
+        checker.scheduleAtFixedRate(this::checkTriggers, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+
+        System.out.printf("🛫 Flight recorder started (maxAge=%ds, maxSize=%dMB, dumps -> %s)%n",
+                maxAge.toSeconds(), maxSizeBytes / (1024 * 1024), Paths.get(outputDir).toAbsolutePath());
+    }
+
+    @Override
+    public synchronized void close() {
+        if (checker != null) {
+            checker.shutdownNow();
+            checker = null;
+        }
+        if (pinningStream != null) {
+            pinningStream.close();
+            pinningStream = null;
+        }
+        if (recording != null) {
+            recording.close();
+            recording = null;
+            System.out.println("🛬 Flight recorder stopped");
+        }
+    }
+
+    public synchronized boolean isRunning() {
+        return recording != null;
+    }
+
+    // ======================
+    // Triggers
+    // ======================
+
+    /**
+     * Reports the latency of one request; calls slower than the configured SLO count as breaches.
+     * Cheap enough to call on every request.
+     */
+    public void recordLatency(Duration latency) {
+        if (latencySlo != null && latency.compareTo(latencySlo) > 0) {
+            sloBreaches.increment();
+        }
+    }
+
+    private void checkTriggers() {
+        try {
+            double seconds = checkInterval.toNanos() / 1_000_000_000.0;
+
+            long pinned = pinnedEvents.sum();
+            double pinnedRate = (pinned - lastPinnedCount) / seconds;
+            lastPinnedCount = pinned;
+
+            long breaches = sloBreaches.sum();
+            double breachRate = (breaches - lastBreachCount) / seconds;
+            lastBreachCount = breaches;
+
+            boolean starved = checkStarvation();
+
+            if (pinnedEventsPerSecondThreshold > 0 && pinnedRate >= pinnedEventsPerSecondThreshold) {
+                dump(String.format("pinning-%.0f-per-s", pinnedRate));
+            } else if (latencySlo != null && breachRate >= sloBreachesPerSecondThreshold) {
+                dump(String.format("slo-%.0f-breaches-per-s", breachRate));
+            } else if (starved) {
+                dump("carrier-starvation-" + starvedChecksInRow + "-checks");
+            } else {
+                for (Map.Entry<String, BooleanSupplier> trigger : customTriggers.entrySet()) {
+                    if (trigger.getValue().getAsBoolean()) {
+                        dump(trigger.getKey());
+                        break;
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            // Never let a failing check cancel the periodic task
+            System.err.println("❌ Flight recorder trigger check failed: " + e.getMessage());
+        }
+    }
+
+    // All carriers taken (running or pinned) while virtual threads queue up, sustained over checks
+    private boolean checkStarvation() {
+        if (scheduler == null) return false;
+        long queued = scheduler.getQueuedSubmissionCount() + scheduler.getQueuedTaskCount();
+        boolean saturated = scheduler.getActiveThreadCount() >= scheduler.getParallelism();
+        starvedChecksInRow = queued > 0 && saturated ? starvedChecksInRow + 1 : 0;
+        return starvedChecksInRow >= starvationChecks;
+    }
+
+    // ======================
+    // Dumps
+    // ======================
+
+    /**
+     * Dumps the retained window unless a dump happened within the cooldown.
+     *
+     * @return the dump file, or null if skipped
+     */
+    public synchronized Path dump(String reason) {
+        if (recording == null) return null;
+
+        long now = System.nanoTime();
+        if (lastDumpNanos != 0 && now - lastDumpNanos < cooldown.toNanos()) {
+            return null;
+        }
+        lastDumpNanos = now;
+
+        String safeReason = reason.replaceAll("[^a-zA-Z0-9-]", "_");
+        Path file = Paths.get(outputDir,
+                recordingName + "-" + safeReason + "-" + Instant.now().getEpochSecond() + ".jfr");
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            recording.dump(file);
+        } catch (IOException e) {
+            System.err.println("❌ Flight recorder dump failed: " + e.getMessage());
+            return null;
+        }
+        System.out.println("🚨 Flight recorder dump (" + reason + "): " + file.toAbsolutePath());
+
+        dumps.addLast(file);
+        while (dumps.size() > maxDumps) {
+            Path oldest = dumps.removeFirst();
+            try {
+                if (Files.deleteIfExists(oldest)) {
+                    System.out.println("🧹 Deleted old dump: " + oldest.getFileName());
+                }
+            } catch (IOException e) {
+                System.err.println("❌ Could not delete old dump " + oldest + ": " + e.getMessage());
+            }
+        }
+        return file;
+    }
+
+    // ======================
+    // Builder
+    // ======================
+    public static class Builder {
+        private String jfcPath = DEFAULT_JFC_PATH;
+        private String outputDir = DEFAULT_OUTPUT_DIR;
+        private String recordingName = DEFAULT_RECORDING_NAME;
+        private long maxSizeBytes = DEFAULT_MAX_SIZE_BYTES;
+        private Duration maxAge = DEFAULT_MAX_AGE;
+        private Duration checkInterval = DEFAULT_CHECK_INTERVAL;
+        private Duration cooldown = DEFAULT_COOLDOWN;
+        private int maxDumps = DEFAULT_MAX_DUMPS;
+        private double pinnedEventsPerSecondThreshold = 0;
+        private Duration pinnedThreshold = Duration.ofMillis(20);
+        private Duration latencySlo;
+        private double sloBreachesPerSecondThreshold = 1;
+        private final Map<String, BooleanSupplier> customTriggers = new ConcurrentHashMap<>();
+        private int starvationChecks = 0;
+
+        /**
+         * .jfc settings for the continuous recording; null uses the JDK "default" profile.
+         */
+        public Builder jfcPath(String jfcPath) { this.jfcPath = jfcPath; return this; }
+        public Builder outputDir(String outputDir) { this.outputDir = outputDir; return this; }
+        public Builder recordingName(String recordingName) { this.recordingName = recordingName; return this; }
+        public Builder maxSizeBytes(long maxSizeBytes) { this.maxSizeBytes = maxSizeBytes; return this; }
+
+        /**
+         * How much history is retained, and therefore dumped ("the last N minutes").
+         */
+        public Builder maxAge(Duration maxAge) { this.maxAge = maxAge; return this; }
+        public Builder checkInterval(Duration checkInterval) { this.checkInterval = checkInterval; return this; }
+        public Builder cooldown(Duration cooldown) { this.cooldown = cooldown; return this; }
+        public Builder maxDumps(int maxDumps) { this.maxDumps = maxDumps; return this; }
+
+        /**
+         * Dump when pinned events longer than pinnedThreshold exceed this rate (0 disables).
+         */
+        public Builder pinningTrigger(double eventsPerSecond, Duration pinnedThreshold) {
+            this.pinnedEventsPerSecondThreshold = eventsPerSecond;
+            this.pinnedThreshold = pinnedThreshold;
+            return this;
+        }
+
+        /**
+         * Dump when calls reported through recordLatency exceed the SLO this many times per second.
+         */
+        public Builder latencySloTrigger(Duration slo, double breachesPerSecond) {
+            this.latencySlo = slo;
+            this.sloBreachesPerSecondThreshold = breachesPerSecond;
+            return this;
+        }
+
+        /**
+         * Dump when every carrier of the virtual thread scheduler is busy while virtual threads are
+         * queued, at this many consecutive checks (0 disables). Reads the scheduler through
+         * {@link VirtualThreadInternals}, so it needs --add-opens java.base/java.lang=ALL-UNNAMED.
+         */
+        public Builder carrierStarvationTrigger(int consecutiveChecks) {
+            this.starvationChecks = consecutiveChecks;
+            return this;
+        }
+
+        /**
+         * Dump when the condition holds at a check. The name becomes part of the file name.
+         */
+        public Builder trigger(String name, BooleanSupplier condition) {
+            this.customTriggers.put(name, condition);
+            return this;
+        }
+
+        public JFRFlightRecorder build() {
+            if (maxDumps <= 0 || checkInterval.isZero() || checkInterval.isNegative()) {
+                throw new IllegalArgumentException("maxDumps and checkInterval must be positive");
+            }
+            return new JFRFlightRecorder(this);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.example.util;
+
+import jdk.jfr.consumer.EventStream;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Continuously analyzes virtual thread JFR events while the recording keeps running.
+ *
+ * Events are folded into a fixed ring of time buckets (default: 60 x 1 s), so memory
+ * stays bounded no matter how long the process runs. Each bucket keeps:
+ *  - virtual thread start/end counts
+ *  - pinned event count and duration, per call site (capped, overflow goes to "other")
+ *  - monitor-blocked (jdk.JavaMonitorEnter) count and duration
+ *
+ * Two sources are supported:
+ *  - a private {@link RecordingStream} (default), which enables the events itself
+ *  - {@link EventStream#openRepository()}, which tails the disk repository of the
+ *    recordings already running in this JVM (e.g. one started by {@link JFRUtil})
+ *
+ * Usage:
+ * <pre>
+ *   JFRLiveAnalyzer analyzer = new JFRLiveAnalyzer.Builder().build();
+ *   analyzer.start();
+ *   ...
+ *   analyzer.printReport(Duration.ofSeconds(10));
+ *   analyzer.close();
+ * </pre>
+ */
+public class JFRLiveAnalyzer implements AutoCloseable {
+
+    private static final int DEFAULT_BUCKET_COUNT = 60;
+    private static final Duration DEFAULT_BUCKET_DURATION = Duration.ofSeconds(1);
+    private static final int DEFAULT_MAX_PINNING_SITES = 32;
+    private static final Duration DEFAULT_PINNED_THRESHOLD = Duration.ofMillis(5);
+    private static final Duration DEFAULT_MONITOR_THRESHOLD = Duration.ofMillis(1);
+
+    static final String OTHER_SITE = "other";
+
+    private final int bucketCount;
+    private final long bucketNanos;
+    private final int maxPinningSites;
+    private final boolean fromRepository;
+    private final Duration pinnedThreshold;
+    private final Duration monitorThreshold;
+
+    // Ring of buckets, indexed by (epochBucket % bucketCount); guarded by "this"
+    private final Bucket[] buckets;
+    // Sink for events older than the ring, never read; guarded by "this" like the ring
+    private final Bucket discard = new Bucket();
+
+    private EventStream stream;
+
+    private JFRLiveAnalyzer(Builder builder) {
+        this.bucketCount = builder.bucketCount;
+        this.bucketNanos = builder.bucketDuration.toNanos();
+        this.maxPinningSites = builder.maxPinningSites;
+        this.fromRepository = builder.fromRepository;
+        this.pinnedThreshold = builder.pinnedThreshold;
+        this.monitorThreshold = builder.monitorThreshold;
+        this.buckets = new Bucket[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    // ======================
+    // Lifecycle
+    // ======================
+
+    public synchronized void start() {
+        if (stream != null) {
+            System.out.println("⚠️ Live JFR analyzer already running");
+            return;
+        }
+        try {
+            stream = fromRepository ? EventStream.openRepository() : newRecordingStream();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open JFR repository: " + e.getMessage(), e);
+        }
+
+        // Events are only read inside the handlers, so the stream may reuse them
+        stream.setReuse(true);
+        stream.setOrdered(false);
+        if (fromRepository) {
+            stream.setStartTime(Instant.now());
+        }
+
+        stream.onEvent("jdk.VirtualThreadStart", this::onStart);
+        stream.onEvent("jdk.VirtualThreadEnd", this::onEnd);
+        stream.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+        stream.onEvent("jdk.JavaMonitorEnter", this::onMonitorEnter);
+
+        stream.startAsync();
+        System.out.println("📡 Live JFR analyzer started ("
+                + (fromRepository ? "disk repository" : "recording stream") + ")");
+    }
+
+    @Override
+    public void close() {
+        EventStream running;
+        synchronized (this) {
+            running = stream;
+            stream = null;
+        }
+        // Closed outside the lock, event handlers synchronize on this analyzer
+        if (running == null) return;
+        running.close();
+        System.out.println("🛑 Live JFR analyzer stopped");
+    }
+
+    public synchronized boolean isRunning() {
+        return stream != null;
+    }
+
+    private RecordingStream newRecordingStream() {
+        RecordingStream rs = new RecordingStream();
+        rs.enable("jdk.VirtualThreadStart").withoutStackTrace();
+        rs.enable("jdk.VirtualThreadEnd").withoutStackTrace();
+        rs.enable("jdk.VirtualThreadPinned").withStackTrace().withThreshold(pinnedThreshold);
+        rs.enable("jdk.JavaMonitorEnter").withoutStackTrace().withThreshold(monitorThreshold);
+        // Only the analyzer consumes this stream, keep its own buffers small
+        rs.setMaxAge(Duration.ofNanos(bucketNanos));
+        return rs;
+    }
+
+    // ======================
+    // Event handlers (JFR stream thread)
+    // ======================
+
+    private synchronized void onStart(RecordedEvent event) {
+        bucketFor(event).starts++;
+    }
+
+    private synchronized void onEnd(RecordedEvent event) {
+        bucketFor(event).ends++;
+    }
+
+    private synchronized void onPinned(RecordedEvent event) {
+        Bucket bucket = bucketFor(event);
+        long nanos = event.getDuration().toNanos();
+        bucket.pinned++;
+        bucket.pinnedNanos += nanos;
+
+        String site = JFRStackUtil.topApplicationFrame(event.getStackTrace());
+        long[] stats = bucket.pinningSites.get(site);
+        if (stats == null) {
+            // Cap distinct sites per bucket, everything else is folded into "other"
+            String key = bucket.pinningSites.size() < maxPinningSites ? site : OTHER_SITE;
+            stats = bucket.pinningSites.computeIfAbsent(key, k -> new long[2]);
+        }
+        stats[0]++;
+        stats[1] += nanos;
+    }
+
+    private synchronized void onMonitorEnter(RecordedEvent event) {
+        Bucket bucket = bucketFor(event);
+        bucket.monitorBlocked++;
+        bucket.monitorBlockedNanos += event.getDuration().toNanos();
+    }
+
+    // Returns the live bucket for the event time; stale events land in a scratch bucket
+    private Bucket bucketFor(RecordedEvent event) {
+        long epochBucket = toEpochNanos(event.getEndTime()) / bucketNanos;
+        Bucket bucket = buckets[(int) (epochBucket % bucketCount)];
+        if (bucket.epoch < epochBucket) {
+            bucket.reset(epochBucket);
+        } else if (bucket.epoch > epochBucket) {
+            return discard;
+        }
+        return bucket;
+    }
+
+    // ======================
+    // Queries
+    // ======================
+
+    /**
+     * Aggregates the most recent buckets covering the given window (capped at the ring size).
+     */
+    public synchronized WindowStats snapshot(Duration window) {
+        int windowBuckets = (int) Math.max(1, Math.min(bucketCount, window.toNanos() / bucketNanos));
+        long newest = toEpochNanos(Instant.now()) / bucketNanos;
+        long oldest = newest - windowBuckets + 1;
+
+        long starts = 0, ends = 0, pinned = 0, pinnedNanos = 0, blocked = 0, blockedNanos = 0;
+        Map<String, Long> sites = new HashMap<>();
+
+        for (Bucket bucket : buckets) {
+            if (bucket.epoch < oldest || bucket.epoch > newest) continue;
+            starts += bucket.starts;
+            ends += bucket.ends;
+            pinned += bucket.pinned;
+            pinnedNanos += bucket.pinnedNanos;
+            blocked += bucket.monitorBlocked;
+            blockedNanos += bucket.monitorBlockedNanos;
+            bucket.pinningSites.forEach((site, stats) -> sites.merge(site, stats[1], Long::sum));
+        }
+
+        Map<String, Long> sortedSites = new LinkedHashMap<>();
+        sites.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(e -> sortedSites.put(e.getKey(), e.getValue()));
+
+        return new WindowStats(Duration.ofNanos(windowBuckets * bucketNanos),
+                starts, ends, pinned, pinnedNanos, blocked, blockedNanos, sortedSites);
+    }
+
+    public void printReport(Duration... windows) {
+        for (Duration window : windows) {
+            WindowStats stats = snapshot(window);
+            System.out.println("\n📡 Live JFR window: last " + stats.window().toSeconds() + " s");
+            System.out.println("================================");
+            System.out.printf("Virtual thread starts/s : %.1f%n", stats.startsPerSecond());
+            System.out.printf("Virtual thread ends/s   : %.1f%n", stats.endsPerSecond());
+            System.out.printf("Pinned events           : %d (%.1f ms total)%n",
+                    stats.pinnedEvents(), stats.pinnedNanos() / 1_000_000.0);
+            System.out.printf("Monitor blocked         : %d (%.1f ms total)%n",
+                    stats.monitorBlockedEvents(), stats.monitorBlockedNanos() / 1_000_000.0);
+            if (!stats.pinningSitesNanos().isEmpty()) {
+                System.out.println("📌 Pinning sites (by pinned time):");
+                stats.pinningSitesNanos().forEach((site, nanos) ->
+                        System.out.printf("  %-60s %10.1f ms%n", site, nanos / 1_000_000.0));
+            }
+        }
+    }
+
+    private static long toEpochNanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    /**
+     * Aggregated values for one sliding window.
+     */
+    public record WindowStats(Duration window,
+                              long virtualThreadStarts,
+                              long virtualThreadEnds,
+                              long pinnedEvents,
+                              long pinnedNanos,
+                              long monitorBlockedEvents,
+                              long monitorBlockedNanos,
+                              Map<String, Long> pinningSitesNanos) {
+
+        public double startsPerSecond() {
+            return virtualThreadStarts / seconds();
+        }
+
+        public double endsPerSecond() {
+            return virtualThreadEnds / seconds();
+        }
+
+        private double seconds() {
+            return Math.max(1, window.toMillis()) / 1000.0;
+        }
+    }
+
+    // One time slice of the ring; reset in place when the ring wraps around
+    private static class Bucket {
+        long epoch = Long.MIN_VALUE;
+        long starts;
+        long ends;
+        long pinned;
+        long pinnedNanos;
+        long monitorBlocked;
+        long monitorBlockedNanos;
+        final Map<String, long[]> pinningSites = new HashMap<>();
+
+        void reset(long newEpoch) {
+            epoch = newEpoch;
+            starts = ends = pinned = pinnedNanos = monitorBlocked = monitorBlockedNanos = 0;
+            pinningSites.clear();
+        }
+    }
+
+    // ======================
+    // Builder
+    // ======================
+    public static class Builder {
+        private int bucketCount = DEFAULT_BUCKET_COUNT;
+        private Duration bucketDuration = DEFAULT_BUCKET_DURATION;
+        private int maxPinningSites = DEFAULT_MAX_PINNING_SITES;
+        private boolean fromRepository = false;
+        private Duration pinnedThreshold = DEFAULT_PINNED_THRESHOLD;
+        private Duration monitorThreshold = DEFAULT_MONITOR_THRESHOLD;
+
+        public Builder bucketCount(int bucketCount) {
+            this.bucketCount = bucketCount;
+            return this;
+        }
+
+        public Builder bucketDuration(Duration bucketDuration) {
+            this.bucketDuration = bucketDuration;
+            return this;
+        }
+
+        public Builder maxPinningSites(int maxPinningSites) {
+            this.maxPinningSites = maxPinningSites;
+            return this;
+        }
+
+        /**
+         * Tail the disk repository instead of opening a private recording stream.
+         * Requires another recording (e.g. {@link JFRUtil}) with the events enabled.
+         */
+        public Builder fromRepository(boolean fromRepository) {
+            this.fromRepository = fromRepository;
+            return this;
+        }
+
+        public Builder pinnedThreshold(Duration pinnedThreshold) {
+            this.pinnedThreshold = pinnedThreshold;
+            return this;
+        }
+
+        public Builder monitorThreshold(Duration monitorThreshold) {
+            this.monitorThreshold = monitorThreshold;
+            return this;
+        }
+
+        public JFRLiveAnalyzer build() {
+            if (bucketCount <= 0 || bucketDuration.isZero() || bucketDuration.isNegative()) {
+                throw new IllegalArgumentException("Bucket count and duration must be positive");
+            }
+            return new JFRLiveAnalyzer(this);
+        }
+    }
+}
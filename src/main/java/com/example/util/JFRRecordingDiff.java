@@ -0,0 +1,265 @@
+package com.example.util;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Compares two recordings produced by {@link JFRUtil} (baseline vs candidate) and reports
+ * regressions in pinning, monitor-blocked time, park time and virtual thread lifetimes.
+ *
+ * Times are normalized per second of recording, so runs of different length compare fairly.
+ * A metric regresses when it grows by more than its relative threshold AND by more than the
+ * absolute noise floor, so a baseline of zero does not turn 1 µs into an infinite regression.
+ *
+ * Command line (non-zero exit code on regression, for use as a pipeline perf gate):
+ * <pre>
+ *   java com.example.util.JFRRecordingDiff baseline.jfr candidate.jfr \
+ *        [--max-increase=10] [--max-pinned-increase=PCT] [--max-blocked-increase=PCT]
+ *        [--max-park-increase=PCT] [--max-lifetime-increase=PCT] [--noise-floor-ms=1]
+ * </pre>
+ * Exit codes: 0 = no regression, 1 = regression, 2 = usage or I/O error.
+ */
+public class JFRRecordingDiff {
+
+    private static final double DEFAULT_MAX_INCREASE_PERCENT = 10.0;
+    private static final double DEFAULT_NOISE_FLOOR_MS = 1.0;
+    private static final int TOP_SITES = 10;
+
+    private final double maxPinnedIncrease;
+    private final double maxBlockedIncrease;
+    private final double maxParkIncrease;
+    private final double maxLifetimeIncrease;
+    private final double noiseFloorMs;
+
+    private JFRRecordingDiff(Builder builder) {
+        this.maxPinnedIncrease = builder.maxPinnedIncrease;
+        this.maxBlockedIncrease = builder.maxBlockedIncrease;
+        this.maxParkIncrease = builder.maxParkIncrease;
+        this.maxLifetimeIncrease = builder.maxLifetimeIncrease;
+        this.noiseFloorMs = builder.noiseFloorMs;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: JFRRecordingDiff <baseline.jfr> <candidate.jfr> [--max-increase=PCT] "
+                    + "[--max-pinned-increase=PCT] [--max-blocked-increase=PCT] [--max-park-increase=PCT] "
+                    + "[--max-lifetime-increase=PCT] [--noise-floor-ms=MS]");
+            System.exit(2);
+        }
+
+        Builder builder = new Builder();
+        try {
+            for (int i = 2; i < args.length; i++) {
+                String[] option = args[i].split("=", 2);
+                if (option.length != 2) throw new IllegalArgumentException("Bad option: " + args[i]);
+                double value = Double.parseDouble(option[1]);
+                switch (option[0]) {
+                    case "--max-increase" -> builder.maxIncrease(value);
+                    case "--max-pinned-increase" -> builder.maxPinnedIncrease(value);
+                    case "--max-blocked-increase" -> builder.maxBlockedIncrease(value);
+                    case "--max-park-increase" -> builder.maxParkIncrease(value);
+                    case "--max-lifetime-increase" -> builder.maxLifetimeIncrease(value);
+                    case "--noise-floor-ms" -> builder.noiseFloorMs(value);
+                    default -> throw new IllegalArgumentException("Unknown option: " + option[0]);
+                }
+            }
+
+            Result result = builder.build().compare(Paths.get(args[0]), Paths.get(args[1]));
+            result.printReport();
+            System.exit(result.hasRegression() ? 1 : 0);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("❌ " + e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    public Result compare(Path baselineFile, Path candidateFile) throws IOException {
+        Profile baseline = Profile.of(baselineFile);
+        Profile candidate = Profile.of(candidateFile);
+
+        List<Delta> deltas = new ArrayList<>();
+
+        // Event rates are informational only, workloads may legitimately change them
+        TreeSet<String> types = new TreeSet<>(baseline.eventCounts().keySet());
+        types.addAll(candidate.eventCounts().keySet());
+        for (String type : types) {
+            if (!type.contains("Thread") && !type.contains("Monitor")) continue;
+            deltas.add(new Delta("rate " + type + " (/s)",
+                    baseline.ratePerSecond(type), candidate.ratePerSecond(type), false));
+        }
+
+        deltas.add(timeDelta("pinned time (ms/s)", baseline.perSecond(baseline.pinnedNanos()),
+                candidate.perSecond(candidate.pinnedNanos()), maxPinnedIncrease));
+        deltas.add(timeDelta("monitor blocked time (ms/s)", baseline.perSecond(baseline.monitorBlockedNanos()),
+                candidate.perSecond(candidate.monitorBlockedNanos()), maxBlockedIncrease));
+        deltas.add(timeDelta("park time (ms/s)", baseline.perSecond(baseline.parkNanos()),
+                candidate.perSecond(candidate.parkNanos()), maxParkIncrease));
+
+        // Per call site: the sites that pin most in either run
+        TreeSet<String> sites = new TreeSet<>();
+        topSites(baseline, sites);
+        topSites(candidate, sites);
+        for (String site : sites) {
+            deltas.add(timeDelta("pinned @ " + site + " (ms/s)",
+                    baseline.perSecond(baseline.pinnedNanosBySite().getOrDefault(site, 0L)),
+                    candidate.perSecond(candidate.pinnedNanosBySite().getOrDefault(site, 0L)),
+                    maxPinnedIncrease));
+        }
+
+        for (double p : new double[]{50, 90, 99}) {
+            deltas.add(timeDelta("virtual thread lifetime p" + (int) p + " (ms)",
+                    baseline.lifetimes().percentile(p) / 1_000_000.0,
+                    candidate.lifetimes().percentile(p) / 1_000_000.0,
+                    maxLifetimeIncrease));
+        }
+
+        return new Result(baselineFile, candidateFile, deltas);
+    }
+
+    private Delta timeDelta(String name, double baselineMs, double candidateMs, double maxIncreasePercent) {
+        double increase = candidateMs - baselineMs;
+        boolean regressed = increase > noiseFloorMs
+                && (baselineMs == 0 || increase / baselineMs * 100 > maxIncreasePercent);
+        return new Delta(name, baselineMs, candidateMs, regressed);
+    }
+
+    private static void topSites(Profile profile, TreeSet<String> into) {
+        profile.pinnedNanosBySite().entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(TOP_SITES)
+                .forEach(e -> into.add(e.getKey()));
+    }
+
+    /**
+     * Aggregates of one recording; times are in nanoseconds.
+     */
+    public record Profile(double durationSeconds,
+                          Map<String, Long> eventCounts,
+                          long pinnedNanos,
+                          Map<String, Long> pinnedNanosBySite,
+                          long monitorBlockedNanos,
+                          long parkNanos,
+                          LogHistogram lifetimes) {
+
+        static Profile of(Path jfrFile) throws IOException {
+            Map<String, Long> counts = new HashMap<>();
+            Map<String, Long> pinnedBySite = new HashMap<>();
+            long pinned = 0, blocked = 0, park = 0;
+            Instant first = null, last = null;
+
+            try (RecordingFile recordingFile = new RecordingFile(jfrFile)) {
+                while (recordingFile.hasMoreEvents()) {
+                    RecordedEvent event = recordingFile.readEvent();
+                    String type = event.getEventType().getName();
+                    counts.merge(type, 1L, Long::sum);
+
+                    Instant start = event.getStartTime();
+                    if (first == null || start.isBefore(first)) first = start;
+                    Instant end = event.getEndTime();
+                    if (last == null || end.isAfter(last)) last = end;
+
+                    switch (type) {
+                        case "jdk.VirtualThreadPinned" -> {
+                            long nanos = event.getDuration().toNanos();
+                            pinned += nanos;
+                            pinnedBySite.merge(JFRStackUtil.topApplicationFrame(event.getStackTrace()), nanos, Long::sum);
+                        }
+                        case "jdk.JavaMonitorEnter" -> blocked += event.getDuration().toNanos();
+                        case "jdk.ThreadPark" -> park += event.getDuration().toNanos();
+                        default -> { }
+                    }
+                }
+            }
+
+            double seconds = first == null ? 0 : Math.max(0.001,
+                    (last.toEpochMilli() - first.toEpochMilli()) / 1000.0);
+            LogHistogram lifetimes = new VirtualThreadTimelineAnalyzer.Builder().build()
+                    .analyze(jfrFile).lifetimesNanos();
+            return new Profile(seconds, counts, pinned, pinnedBySite, blocked, park, lifetimes);
+        }
+
+        double ratePerSecond(String type) {
+            return durationSeconds == 0 ? 0 : eventCounts.getOrDefault(type, 0L) / durationSeconds;
+        }
+
+        // Nanoseconds of recording time -> milliseconds per second of recording
+        double perSecond(long nanos) {
+            return durationSeconds == 0 ? 0 : nanos / 1_000_000.0 / durationSeconds;
+        }
+    }
+
+    public record Delta(String metric, double baseline, double candidate, boolean regressed) {
+
+        public double changePercent() {
+            if (baseline == 0) return candidate == 0 ? 0 : Double.POSITIVE_INFINITY;
+            return (candidate - baseline) / baseline * 100;
+        }
+    }
+
+    public record Result(Path baseline, Path candidate, List<Delta> deltas) {
+
+        public boolean hasRegression() {
+            return deltas.stream().anyMatch(Delta::regressed);
+        }
+
+        public void printReport() {
+            System.out.println("\n🔍 JFR Recording Diff");
+            System.out.println("======================");
+            System.out.println("Baseline : " + baseline.getFileName());
+            System.out.println("Candidate: " + candidate.getFileName());
+            System.out.printf("%n%-70s %12s %12s %9s%n", "Metric", "Baseline", "Candidate", "Change");
+            for (Delta d : deltas) {
+                double change = d.changePercent();
+                String changeText = Double.isInfinite(change) ? "new" : String.format("%+.1f%%", change);
+                System.out.printf("%-70s %12.3f %12.3f %9s %s%n",
+                        d.metric(), d.baseline(), d.candidate(), changeText, d.regressed() ? "❌" : "");
+            }
+            long regressions = deltas.stream().filter(Delta::regressed).count();
+            System.out.println(regressions == 0
+                    ? "\n✅ No regressions above thresholds"
+                    : "\n❌ " + regressions + " regression(s) above thresholds");
+        }
+    }
+
+    // ======================
+    // Builder
+    // ======================
+    public static class Builder {
+        private double maxPinnedIncrease = DEFAULT_MAX_INCREASE_PERCENT;
+        private double maxBlockedIncrease = DEFAULT_MAX_INCREASE_PERCENT;
+        private double maxParkIncrease = DEFAULT_MAX_INCREASE_PERCENT;
+        private double maxLifetimeIncrease = DEFAULT_MAX_INCREASE_PERCENT;
+        private double noiseFloorMs = DEFAULT_NOISE_FLOOR_MS;
+
+        // Sets every relative threshold at once (percent)
+        public Builder maxIncrease(double percent) {
+            this.maxPinnedIncrease = percent;
+            this.maxBlockedIncrease = percent;
+            this.maxParkIncrease = percent;
+            this.maxLifetimeIncrease = percent;
+            return this;
+        }
+
+        public Builder maxPinnedIncrease(double percent) { this.maxPinnedIncrease = percent; return this; }
+        public Builder maxBlockedIncrease(double percent) { this.maxBlockedIncrease = percent; return this; }
+        public Builder maxParkIncrease(double percent) { this.maxParkIncrease = percent; return this; }
+        public Builder maxLifetimeIncrease(double percent) { this.maxLifetimeIncrease = percent; return this; }
+
+        // Smallest absolute increase (ms, or ms per second) that can count as a regression
+        public Builder noiseFloorMs(double noiseFloorMs) { this.noiseFloorMs = noiseFloorMs; return this; }
+
+        public JFRRecordingDiff build() {
+            return new JFRRecordingDiff(this);
+        }
+    }
+}
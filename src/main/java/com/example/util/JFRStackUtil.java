@@ -0,0 +1,65 @@
+package com.example.util;
+
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordedStackTrace;
+
+import java.util.List;
+
+/**
+ * Small helpers for turning JFR stack traces into short, stable labels.
+ */
+public class JFRStackUtil {
+
+    // Frames from these packages are JDK internals, never the "application" call site
+    private static final String[] JDK_PACKAGE_PREFIXES = {"java.", "javax.", "jdk.", "sun.", "com.sun."};
+
+    public static final String UNKNOWN_SITE = "unknown";
+
+    private JFRStackUtil() {}
+
+    /**
+     * Returns the first non-JDK frame of the stack as "Class.method:line",
+     * falling back to the top frame when the stack is JDK-only.
+     */
+    public static String topApplicationFrame(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) return UNKNOWN_SITE;
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        if (frames.isEmpty()) return UNKNOWN_SITE;
+
+        for (RecordedFrame frame : frames) {
+            if (frame.isJavaFrame() && !isJdkFrame(frame)) {
+                return frameLabel(frame);
+            }
+        }
+        return frameLabel(frames.get(0));
+    }
+
+    // Formats a frame as "com.example.Foo.bar:42"
+    public static String frameLabel(RecordedFrame frame) {
+        RecordedMethod method = frame.getMethod();
+        if (method == null) return UNKNOWN_SITE;
+        String label = method.getType().getName() + "." + method.getName();
+        int line = frame.getLineNumber();
+        return line > 0 ? label + ":" + line : label;
+    }
+
+    // Formats a frame as "com.example.Foo.bar" (no line number, good for folding)
+    public static String methodLabel(RecordedFrame frame) {
+        RecordedMethod method = frame.getMethod();
+        if (method == null) return UNKNOWN_SITE;
+        return method.getType().getName() + "." + method.getName();
+    }
+
+    // True for JDK frames and for generated lambda proxies, which carry no call-site information
+    public static boolean isJdkFrame(RecordedFrame frame) {
+        RecordedMethod method = frame.getMethod();
+        if (method == null) return true;
+        String typeName = method.getType().getName();
+        if (typeName.contains("$$Lambda")) return true;
+        for (String prefix : JDK_PACKAGE_PREFIXES) {
+            if (typeName.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+}
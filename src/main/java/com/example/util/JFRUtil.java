@@ -182,6 +182,38 @@ public class JFRUtil {
         analyzePinnedEvents(jfrFile);
     }
 
+    /**
+     * Exports folded stacks (flame graph input) for execution samples, pinning,
+     * monitor enter and park events, weighted by sample count.
+     */
+    public static Map<String, Path> exportFoldedStacks(Path jfrFile) {
+        return exportFoldedStacks(jfrFile, jfrFile.toAbsolutePath().getParent(), FoldedStackExporter.Weight.SAMPLES);
+    }
+
+    public static Map<String, Path> exportFoldedStacks(Path jfrFile, Path outputDir, FoldedStackExporter.Weight weight) {
+        System.out.println("\n🔥 Exporting folded stacks from: " + jfrFile.getFileName() + " (weight: " + weight + ")");
+        try {
+            return new FoldedStackExporter.Builder()
+                    .weight(weight)
+                    .build()
+                    .export(jfrFile, outputDir);
+        } catch (IOException e) {
+            System.err.println("❌ Error exporting folded stacks: " + e.getMessage());
+            return Map.of();
+        }
+    }
+
+    /**
+     * Reports monitor enter/wait and park events grouped by contended class.
+     */
+    public static void analyzeContention(Path jfrFile) {
+        try {
+            JFRContentionAnalyzer.printReport(new JFRContentionAnalyzer.Builder().build().analyze(jfrFile));
+        } catch (IOException e) {
+            System.err.println("❌ Error analyzing contention: " + e.getMessage());
+        }
+    }
+
     private static void analyzePinnedEvents(Path jfrFile) {
         System.out.println("\n📌 Detailed Virtual Thread Pinning Report");
         System.out.println("=========================================");
@@ -274,6 +306,10 @@ public class JFRUtil {
 
         recording.enable("jdk.JavaMonitorEnter").withThreshold(Duration.ofMillis(1));
         recording.enable("jdk.JavaMonitorWait").withThreshold(Duration.ofMillis(1));
+        recording.enable("jdk.ThreadPark").withStackTrace().withThreshold(Duration.ofMillis(1));
+
+        // CPU samples, so exportFoldedStacks() can render a CPU flame graph from this recording
+        recording.enable("jdk.ExecutionSample").withPeriod(Duration.ofMillis(20));
 
         recording.setMaxAge(Duration.ofMinutes(10));
         recording.setName(baseName + "-" + Instant.now().getEpochSecond());
@@ -0,0 +1,143 @@
+package com.example.util;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size, log-linear histogram of non-negative long values (typically nanoseconds).
+ *
+ * Values are grouped by power of two, and each power of two is split into 32 linear
+ * sub-buckets, so any recorded value is reported with at most ~3% relative error.
+ * The whole range of long fits in 1888 counters (~15 KB) and recording never allocates.
+ *
+ * Histograms with the same layout can be merged, which makes them cheap to keep
+ * per thread/stripe/task type and combine when a report is rendered.
+ *
+ * Not thread-safe.
+ */
+public class LogHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    public void record(long value) {
+        record(value, 1);
+    }
+
+    public void record(long value, long count) {
+        if (count <= 0) return;
+        if (value < 0) value = 0;
+        counts[indexOf(value)] += count;
+        totalCount += count;
+        sum += value * count;
+        if (value < min) min = value;
+        if (value > max) max = value;
+    }
+
+    public void merge(LogHistogram other) {
+        if (other.totalCount == 0) return;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = Long.MIN_VALUE;
+    }
+
+    public long count() {
+        return totalCount;
+    }
+
+    public long sum() {
+        return sum;
+    }
+
+    public long min() {
+        return totalCount == 0 ? 0 : min;
+    }
+
+    public long max() {
+        return totalCount == 0 ? 0 : max;
+    }
+
+    public double mean() {
+        return totalCount == 0 ? 0 : (double) sum / totalCount;
+    }
+
+    /**
+     * Value at the given percentile (0-100), reported as the upper bound of its bucket
+     * and clamped to the recorded min/max.
+     */
+    public long percentile(double percentile) {
+        if (totalCount == 0) return 0;
+        long rank = (long) Math.ceil(Math.max(0, Math.min(100, percentile)) / 100.0 * totalCount);
+        rank = Math.max(1, rank);
+
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.max(min, Math.min(max, upperBound(i)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Visits every non-empty bucket in ascending order.
+     */
+    public void forEachBucket(BucketConsumer consumer) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (counts[i] != 0) {
+                consumer.accept(lowerBound(i), upperBound(i), counts[i]);
+            }
+        }
+    }
+
+    public LogHistogram copy() {
+        LogHistogram copy = new LogHistogram();
+        copy.merge(this);
+        return copy;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int sub = (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long sub = index % SUB_BUCKETS;
+        return (SUB_BUCKETS + sub) << shift;
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long upper = lowerBound(index) + (1L << shift) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+
+    @FunctionalInterface
+    public interface BucketConsumer {
+        void accept(long lowerBound, long upperBound, long count);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from primitive long keys to primitive long values.
+ *
+ * Used to pair events by thread ID without boxing: a boxed {@code HashMap<Long, Long>}
+ * costs ~80 bytes and three objects per entry, this map costs 16 bytes per slot.
+ * Linear probing with backward-shift deletion, so removals leave no tombstones.
+ *
+ * Not thread-safe.
+ */
+public class LongLongHashMap {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    // Key 0 marks an empty slot, a real 0 key is kept aside
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+    private int resizeAt;
+
+    private boolean hasZeroKey;
+    private long zeroValue;
+
+    public LongLongHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongLongHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size + (hasZeroKey ? 1 : 0);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == EMPTY) return hasZeroKey;
+        return keys[slotOf(key)] == key;
+    }
+
+    /**
+     * Returns the value for the key, or {@code missingValue} if absent.
+     */
+    public long get(long key, long missingValue) {
+        if (key == EMPTY) return hasZeroKey ? zeroValue : missingValue;
+        int slot = slotOf(key);
+        return keys[slot] == key ? values[slot] : missingValue;
+    }
+
+    /**
+     * Associates the value with the key, returning the previous value or {@code missingValue}.
+     */
+    public long put(long key, long value, long missingValue) {
+        if (key == EMPTY) {
+            long previous = hasZeroKey ? zeroValue : missingValue;
+            hasZeroKey = true;
+            zeroValue = value;
+            return previous;
+        }
+        int slot = slotOf(key);
+        if (keys[slot] == key) {
+            long previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return missingValue;
+    }
+
+    /**
+     * Removes the key, returning its value or {@code missingValue} if absent.
+     */
+    public long remove(long key, long missingValue) {
+        if (key == EMPTY) {
+            if (!hasZeroKey) return missingValue;
+            hasZeroKey = false;
+            return zeroValue;
+        }
+        int slot = slotOf(key);
+        if (keys[slot] != key) return missingValue;
+
+        long previous = values[slot];
+        shiftBack(slot);
+        size--;
+        return previous;
+    }
+
+    public void forEach(LongLongConsumer consumer) {
+        if (hasZeroKey) consumer.accept(EMPTY, zeroValue);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) consumer.accept(keys[i], values[i]);
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        hasZeroKey = false;
+    }
+
+    // Slot holding the key, or the empty slot where it would go
+    private int slotOf(long key) {
+        int slot = mix(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Backward-shift deletion: pull later entries of the probe chain into the hole
+    private void shiftBack(int hole) {
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & mask;
+            long key = keys[slot];
+            if (key == EMPTY) break;
+            int home = mix(key) & mask;
+            // Move the entry if the hole lies on its probe path (cyclically between home and slot)
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                keys[hole] = key;
+                values[hole] = values[slot];
+                hole = slot;
+            }
+        }
+        keys[hole] = EMPTY;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != EMPTY) {
+                int slot = slotOf(key);
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    // Murmur3 finalizer, thread IDs are sequential so they need spreading
+    private static int mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    @FunctionalInterface
+    public interface LongLongConsumer {
+        void accept(long key, long value);
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serves the Prometheus scrape of a {@link PrometheusMeterRegistry} on "/" and "/metrics".
+ *
+ *  - every exchange runs on its own virtual thread
+ *  - the rendered text is cached for a short TTL and shared by all scrapers; when it is
+ *    stale, one scraper re-renders while the others wait for that result (single flight)
+ *  - Accept-Encoding is checked first; the gzip variant is compressed at most once per
+ *    rendered snapshot, and only when a scraper asks for it
+ *
+ * So the registry is rendered at most once per TTL, whatever the number of scrapers.
+ * The single-flight lock is a ReentrantLock rather than synchronized, so waiting
+ * virtual threads unmount instead of pinning their carriers.
+ */
+public class MetricsHttpServer implements AutoCloseable {
+
+    private final PrometheusMeterRegistry registry;
+    private final long ttlNanos;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ReentrantLock renderLock = new ReentrantLock();
+    private volatile Snapshot snapshot;
+
+    public MetricsHttpServer(PrometheusMeterRegistry registry, int port, Duration ttl) throws IOException {
+        this.registry = registry;
+        this.ttlNanos = ttl.toNanos();
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.server.setExecutor(executor);
+        this.server.createContext("/", this::handle);
+        this.server.createContext("/metrics", this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            boolean gzip = acceptsGzip(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            Snapshot current = currentSnapshot();
+            byte[] body = gzip ? current.gzipped() : current.plain;
+
+            exchange.getResponseHeaders().set("Content-Type", TextFormat.CONTENT_TYPE_004);
+            exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+            if (gzip) {
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    // Returns a fresh snapshot, rendering it at most once per TTL across all scrapers
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null && System.nanoTime() - current.renderedAtNanos < ttlNanos) {
+            return current;
+        }
+        renderLock.lock();
+        try {
+            current = snapshot;
+            if (current == null || System.nanoTime() - current.renderedAtNanos >= ttlNanos) {
+                current = new Snapshot(registry.scrape().getBytes(StandardCharsets.UTF_8), System.nanoTime());
+                snapshot = current;
+            }
+            return current;
+        } finally {
+            renderLock.unlock();
+        }
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (!parts[0].trim().equalsIgnoreCase("gzip")) continue;
+            // "gzip;q=0" means the client refuses gzip
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private static final class Snapshot {
+        final byte[] plain;
+        final long renderedAtNanos;
+        private final ReentrantLock gzipLock = new ReentrantLock();
+        private volatile byte[] gzip;
+
+        Snapshot(byte[] plain, long renderedAtNanos) {
+            this.plain = plain;
+            this.renderedAtNanos = renderedAtNanos;
+        }
+
+        // Compressed once per snapshot, on first request
+        byte[] gzipped() throws IOException {
+            byte[] result = gzip;
+            if (result != null) return result;
+            gzipLock.lock();
+            try {
+                if (gzip == null) {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream(plain.length / 4 + 64);
+                    try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+                        out.write(plain);
+                    }
+                    gzip = bytes.toByteArray();
+                }
+                return gzip;
+            } finally {
+                gzipLock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.util;
+
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.config.NamingConvention;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically appends every meter of a registry to a text file in line protocol,
+ * for perf boxes without Prometheus/Grafana. One line per meter and snapshot:
+ * <pre>
+ *   jfr_virtual_thread_pinned_seconds count=12,total=0.48 1718000000000
+ *   executor_tasks_in_flight,executor=virtual-batch value=37 1718000000000
+ * </pre>
+ * measurement = meter name (registry naming convention), tags, one field per statistic,
+ * timestamp in epoch millis. Tag keys/values escape ',', ' ' and '=' with a backslash.
+ *
+ * The file is only ever appended to and nothing is kept in memory between snapshots,
+ * so the cost of a snapshot depends on the number of meters, not on the history length.
+ * Read it back with {@link MetricsSnapshotReader}.
+ */
+public class MetricsSnapshotExporter implements AutoCloseable {
+
+    private final MeterRegistry registry;
+    private final Path file;
+    private final Duration interval;
+    private final NamingConvention namingConvention;
+    private final StringBuilder line = new StringBuilder(256);
+    private ScheduledExecutorService scheduler;
+    private Writer writer;
+
+    public MetricsSnapshotExporter(MeterRegistry registry, Path file, Duration interval) {
+        this.registry = registry;
+        this.file = file;
+        this.interval = interval;
+        this.namingConvention = registry.config().namingConvention();
+    }
+
+    public synchronized void start() throws IOException {
+        if (scheduler != null) return;
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-snapshot-exporter");
+            t.setDaemon(true);
+            return t;
+        });
+        long intervalMs = interval.toMillis();
+        scheduler.scheduleAtFixedRate(this::snapshotQuietly, 0, intervalMs, TimeUnit.MILLISECONDS);
+        System.out.println("💾 Metrics snapshots every " + intervalMs + " ms → " + file.toAbsolutePath());
+    }
+
+    /**
+     * Appends one snapshot of all meters, stamped with the current time.
+     */
+    public synchronized void snapshot() throws IOException {
+        if (writer == null) return;
+        long timestamp = System.currentTimeMillis();
+        for (Meter meter : registry.getMeters()) {
+            if (appendMeter(meter, timestamp)) {
+                writer.append(line).append('\n');
+            }
+        }
+        writer.flush();
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException e) {
+            System.err.println("❌ Failed to write metrics snapshot: " + e.getMessage());
+        }
+    }
+
+    // Formats the meter into the reusable line buffer; false when it has no finite value
+    private boolean appendMeter(Meter meter, long timestamp) {
+        line.setLength(0);
+        Meter.Id id = meter.getId();
+        appendEscaped(id.getConventionName(namingConvention));
+        for (Tag tag : id.getConventionTags(namingConvention)) {
+            line.append(',');
+            appendEscaped(tag.getKey());
+            line.append('=');
+            appendEscaped(tag.getValue());
+        }
+
+        boolean first = true;
+        for (Measurement measurement : meter.measure()) {
+            double value = measurement.getValue();
+            if (!Double.isFinite(value)) continue;
+            line.append(first ? ' ' : ',');
+            line.append(measurement.getStatistic().getTagValueRepresentation().toLowerCase(Locale.ROOT));
+            line.append('=').append(value);
+            first = false;
+        }
+        if (first) return false;
+        line.append(' ').append(timestamp);
+        return true;
+    }
+
+    private void appendEscaped(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\n' || c == '\r') c = ' ';
+            if (c == ',' || c == ' ' || c == '=' || c == '\\') line.append('\\');
+            line.append(c);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler == null) return;
+        scheduler.shutdownNow();
+        scheduler = null;
+        try {
+            // Final snapshot so the last values of a short run are not lost
+            snapshot();
+            writer.close();
+        } catch (IOException e) {
+            System.err.println("❌ Failed to close metrics snapshot file: " + e.getMessage());
+        }
+        writer = null;
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Rebuilds time series from a file written by {@link MetricsSnapshotExporter}.
+ * Each series is one field of one meter, keyed as {@code name{tag=value,...}:field}.
+ *
+ * Usage: MetricsSnapshotReader <snapshots.lp> [series.csv]
+ * Prints one summary line per series, and optionally writes all points as CSV
+ * (series,timestamp,value).
+ */
+public class MetricsSnapshotReader {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: MetricsSnapshotReader <snapshots.lp> [series.csv]");
+            System.exit(2);
+        }
+        Map<String, TimeSeries> series = read(Paths.get(args[0]));
+        printSummary(series);
+        if (args.length > 1) {
+            writeCsv(series, Paths.get(args[1]));
+            System.out.println("📁 Series written to: " + Paths.get(args[1]).toAbsolutePath());
+        }
+    }
+
+    /**
+     * Reads every line of the file, sorted by series key. Malformed lines (e.g. a torn last
+     * line after a crash) are skipped.
+     */
+    public static Map<String, TimeSeries> read(Path file) throws IOException {
+        Map<String, TimeSeries> series = new TreeMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) continue;
+                parseLine(line, series);
+            }
+        }
+        return series;
+    }
+
+    private static void parseLine(String line, Map<String, TimeSeries> series) {
+        List<String> sections = splitUnescaped(line, ' ');
+        if (sections.size() != 3) return;
+
+        long timestamp;
+        try {
+            timestamp = Long.parseLong(sections.get(2));
+        } catch (NumberFormatException e) {
+            return;
+        }
+
+        // "name,tag=v,tag=v" -> "name{tag=v,tag=v}"
+        List<String> nameAndTags = splitUnescaped(sections.get(0), ',');
+        StringBuilder key = new StringBuilder(unescape(nameAndTags.get(0)));
+        if (nameAndTags.size() > 1) {
+            key.append('{');
+            for (int i = 1; i < nameAndTags.size(); i++) {
+                if (i > 1) key.append(',');
+                key.append(unescape(nameAndTags.get(i)));
+            }
+            key.append('}');
+        }
+        String seriesPrefix = key.append(':').toString();
+
+        for (String field : splitUnescaped(sections.get(1), ',')) {
+            int eq = field.indexOf('=');
+            if (eq <= 0) continue;
+            try {
+                double value = Double.parseDouble(field.substring(eq + 1));
+                series.computeIfAbsent(seriesPrefix + field.substring(0, eq), k -> new TimeSeries())
+                        .add(timestamp, value);
+            } catch (NumberFormatException ignored) {
+                // skip the field
+            }
+        }
+    }
+
+    // Splits on the separator, ignoring backslash-escaped occurrences (escapes are kept)
+    private static List<String> splitUnescaped(String text, char separator) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == separator) {
+                parts.add(text.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(text.substring(start));
+        return parts;
+    }
+
+    private static String unescape(String text) {
+        if (text.indexOf('\\') < 0) return text;
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\' && i + 1 < text.length()) c = text.charAt(++i);
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    public static void printSummary(Map<String, TimeSeries> series) {
+        System.out.println("\n📈 Metrics Snapshot Series");
+        System.out.println("==========================");
+        System.out.printf("%-90s %7s %14s %14s %14s%n", "Series", "points", "first", "last", "max");
+        series.forEach((key, s) -> System.out.printf("%-90s %7d %14.3f %14.3f %14.3f%n",
+                key, s.size(), s.value(0), s.value(s.size() - 1), s.max()));
+    }
+
+    public static void writeCsv(Map<String, TimeSeries> series, Path csvFile) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(csvFile))) {
+            writer.println("series,timestamp,value");
+            series.forEach((key, s) -> {
+                String quoted = "\"" + key.replace("\"", "\"\"") + "\"";
+                for (int i = 0; i < s.size(); i++) {
+                    writer.println(quoted + "," + s.timestamp(i) + "," + s.value(i));
+                }
+            });
+        }
+    }
+
+    /**
+     * Points of one series, in file order, held in growable primitive arrays.
+     */
+    public static class TimeSeries {
+        private long[] timestamps = new long[16];
+        private double[] values = new double[16];
+        private int size;
+
+        void add(long timestamp, double value) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            timestamps[size] = timestamp;
+            values[size] = value;
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long timestamp(int index) {
+            return timestamps[index];
+        }
+
+        public double value(int index) {
+            return values[index];
+        }
+
+        public double max() {
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < size; i++) max = Math.max(max, values[i]);
+            return max;
+        }
+    }
+}
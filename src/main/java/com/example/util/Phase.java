@@ -0,0 +1,200 @@
+package com.example.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Scoped, nestable time attribution for the phases of a task:
+ * <pre>
+ *   Phase.run("task", () -> {
+ *       Phase.run("cpu", () -> compute());
+ *       Phase.run("io", () -> callService());
+ *   });
+ *   Phase.printSummary();
+ * </pre>
+ * or, when the phase spans code that does not fit a lambda, {@code try (Phase io = Phase.enter("io"))}.
+ * Each phase records its self time: time spent in nested phases is charged to them, not to the
+ * enclosing one, so the shares in the summary add up to the instrumented time.
+ *
+ * The open phases of a thread form a stack held in a ThreadLocal (one per virtual thread).
+ * Durations go into per-phase {@link LogHistogram}s striped by thread id, each stripe behind its
+ * own ReentrantLock, so concurrent tasks rarely contend and never pin their carrier.
+ * Phases must be closed in reverse order of entry, on the thread that entered them, which run()
+ * and try-with-resources guarantee; any other close throws IllegalStateException.
+ */
+public final class Phase implements AutoCloseable {
+
+    private static final int STRIPES = stripeCount();
+    private static final Map<String, Stats> STATS = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Phase> CURRENT = new ThreadLocal<>();
+
+    private final String name;
+    private final Stats stats;
+    private final Phase parent;
+    private final long startNanos;
+    private long childNanos;
+    private boolean closed;
+
+    private Phase(String name, Stats stats, Phase parent) {
+        this.name = name;
+        this.stats = stats;
+        this.parent = parent;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Starts timing the named phase on the current thread; close it to record the time.
+     */
+    public static Phase enter(String name) {
+        Stats stats = STATS.computeIfAbsent(name, k -> new Stats());
+        Phase phase = new Phase(name, stats, CURRENT.get());
+        CURRENT.set(phase);
+        return phase;
+    }
+
+    /**
+     * Runs the work as the named phase on the current thread; the time is recorded even if it throws.
+     */
+    public static <E extends Exception> void run(String name, Work<E> work) throws E {
+        Phase phase = enter(name);
+        try {
+            work.run();
+        } finally {
+            phase.close();
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        Phase current = CURRENT.get();
+        if (current != this) {
+            throw new IllegalStateException("Phase '" + name + "' closed out of order: "
+                    + (current == null ? "no phase is open on this thread" : "'" + current.name + "' is still open"));
+        }
+        closed = true;
+        long elapsed = System.nanoTime() - startNanos;
+        stats.record(elapsed - childNanos);
+        if (parent != null) {
+            parent.childNanos += elapsed;
+            CURRENT.set(parent);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    // ======================
+    // Reporting
+    // ======================
+
+    /**
+     * Merged self-time histogram (nanoseconds) of the phase, or an empty one if it never ran.
+     */
+    public static LogHistogram histogram(String name) {
+        Stats stats = STATS.get(name);
+        return stats == null ? new LogHistogram() : stats.merged();
+    }
+
+    /**
+     * Prints, per phase, how often it ran, its total self time and share of all phase time,
+     * and its latency percentiles.
+     */
+    public static void printSummary() {
+        Map<String, LogHistogram> merged = new TreeMap<>();
+        STATS.forEach((name, stats) -> merged.put(name, stats.merged()));
+        long grandTotal = merged.values().stream().mapToLong(LogHistogram::sum).sum();
+
+        System.out.println("\n⏱️ Phase Time Attribution (self time)");
+        System.out.println("======================================");
+        System.out.printf("%-12s %8s %12s %7s %10s %10s %10s %10s%n",
+                "Phase", "count", "total (ms)", "share", "mean (ms)", "p50 (ms)", "p99 (ms)", "max (ms)");
+        merged.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .forEach(e -> {
+                    LogHistogram h = e.getValue();
+                    System.out.printf("%-12s %8d %12.1f %6.1f%% %10.3f %10.3f %10.3f %10.3f%n",
+                            e.getKey(),
+                            h.count(),
+                            h.sum() / 1_000_000.0,
+                            grandTotal == 0 ? 0.0 : 100.0 * h.sum() / grandTotal,
+                            h.mean() / 1_000_000.0,
+                            h.percentile(50) / 1_000_000.0,
+                            h.percentile(99) / 1_000_000.0,
+                            h.max() / 1_000_000.0);
+                });
+    }
+
+    /**
+     * Drops everything recorded so far; phases still open keep recording when they close.
+     */
+    public static void reset() {
+        STATS.values().forEach(Stats::reset);
+    }
+
+    /**
+     * Body of a phase for {@link #run}; may throw a checked exception.
+     */
+    @FunctionalInterface
+    public interface Work<E extends Exception> {
+        void run() throws E;
+    }
+
+    private static int stripeCount() {
+        int stripes = 1;
+        while (stripes < Runtime.getRuntime().availableProcessors() * 2) stripes <<= 1;
+        return stripes;
+    }
+
+    private static final class Stats {
+        private final LogHistogram[] histograms = new LogHistogram[STRIPES];
+        private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+        Stats() {
+            for (int i = 0; i < STRIPES; i++) {
+                histograms[i] = new LogHistogram();
+                locks[i] = new ReentrantLock();
+            }
+        }
+
+        void record(long nanos) {
+            int stripe = (int) Thread.currentThread().threadId() & (STRIPES - 1);
+            ReentrantLock lock = locks[stripe];
+            lock.lock();
+            try {
+                histograms[stripe].record(nanos);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        LogHistogram merged() {
+            LogHistogram merged = new LogHistogram();
+            for (int i = 0; i < STRIPES; i++) {
+                locks[i].lock();
+                try {
+                    merged.merge(histograms[i]);
+                } finally {
+                    locks[i].unlock();
+                }
+            }
+            return merged;
+        }
+
+        void reset() {
+            for (int i = 0; i < STRIPES; i++) {
+                locks[i].lock();
+                try {
+                    histograms[i].reset();
+                } finally {
+                    locks[i].unlock();
+                }
+            }
+        }
+    }
+}
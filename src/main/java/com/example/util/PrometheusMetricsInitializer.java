@@ -1,22 +1,40 @@
 package com.example.util;
 
 import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Metrics;
 import io.micrometer.prometheus.PrometheusMeterRegistry;
 import io.micrometer.prometheus.PrometheusConfig;
 import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
 import io.micrometer.core.instrument.binder.jvm.ClassLoaderMetrics;
-import io.prometheus.client.exporter.HTTPServer;
 import io.prometheus.client.CollectorRegistry;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
 /**
  * Utility class to initialize Prometheus metrics registry and expose metrics over HTTP.
- * Also starts JFR virtual thread metrics streaming and JVM thread metrics.
+ * Also starts JFR virtual thread metrics streaming, JVM thread metrics and
+ * virtual thread scheduler (carrier pool) metrics.
  */
 public class PrometheusMetricsInitializer {
 
-    private static HTTPServer server;
+    private static MetricsHttpServer server;
     private static PrometheusMeterRegistry registry;
     private static JFRVirtualThreadMetrics jfrMetrics;
+    private static MetricsSnapshotExporter snapshotExporter;
+
+    /**
+     * Initializes metrics only when run with {@code -Dmetrics.enabled=true}, for demos that should
+     * stay unobserved (and exit on their own) by default. Pair with {@link #shutdown()}.
+     *
+     * @return true when metrics were started
+     */
+    public static boolean initializeIfEnabled() {
+        if (!Boolean.getBoolean("metrics.enabled")) return false;
+        initialize();
+        return true;
+    }
 
     public static void initialize() {
         try {
@@ -26,24 +44,81 @@ public class PrometheusMetricsInitializer {
             // Create Micrometer PrometheusMeterRegistry
             registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT, prometheusRegistry, Clock.SYSTEM);
 
+            // Meters registered on the global registry (e.g. InstrumentedExecutorService) land here too
+            Metrics.addRegistry(registry);
+
             // Register JVM metrics for platform threads
             new JvmThreadMetrics().bindTo(registry);
             new ClassLoaderMetrics().bindTo(registry);
 
-            // Start JFR-based virtual thread metrics
-            jfrMetrics = new JFRVirtualThreadMetrics(registry);
+            // Carrier pool saturation (needs --add-opens java.base/java.lang=ALL-UNNAMED)
+            new VirtualThreadSchedulerMetrics().bindTo(registry);
+
+            // Start JFR-based virtual thread metrics. Pinning call sites (jfr_virtual_thread_pinned_sites_total)
+            // are opt-in: -Dmetrics.pinned.stackSampleRate=N resolves the stack of every Nth pinned event
+            int pinnedStackSampleRate = Integer.getInteger("metrics.pinned.stackSampleRate", 0);
+            jfrMetrics = new JFRVirtualThreadMetrics(registry, Duration.ofSeconds(1), pinnedStackSampleRate);
             jfrMetrics.startJfrStream();
 
-            // Start Prometheus HTTP server to expose /metrics on port 8081
-            server = new HTTPServer(8081);
+            // Expose / and /metrics on port 8081: virtual-thread handlers, scrape cached for 1s
+            server = new MetricsHttpServer(registry, 8081, Duration.ofSeconds(1));
+            server.start();
 
             System.out.println("Prometheus metrics available at http://localhost:8081/metrics");
 
+            // Offline runs: -Dmetrics.snapshot.file=metrics/run.lp also appends snapshots to a file
+            String snapshotFile = System.getProperty("metrics.snapshot.file");
+            if (snapshotFile != null && !snapshotFile.isBlank()) {
+                enableSnapshotExport(Paths.get(snapshotFile), Duration.ofSeconds(5));
+            }
+
         } catch (Exception e) {
             throw new RuntimeException("Failed to initialize Prometheus + JFR metrics", e);
         }
     }
 
+    /**
+     * Appends a snapshot of every meter to the file at the given interval (and once more at JVM exit).
+     * Call after {@link #initialize()}.
+     */
+    public static synchronized void enableSnapshotExport(Path file, Duration interval) {
+        if (registry == null) {
+            throw new IllegalStateException("PrometheusMetricsInitializer.initialize() must be called first");
+        }
+        if (snapshotExporter != null) return;
+        try {
+            snapshotExporter = new MetricsSnapshotExporter(registry, file, interval);
+            snapshotExporter.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(snapshotExporter::close, "metrics-snapshot-shutdown"));
+        } catch (Exception e) {
+            snapshotExporter = null;
+            System.err.println("❌ Failed to start metrics snapshot export: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the HTTP server (its dispatcher thread is non-daemon and would keep the JVM alive),
+     * the JFR stream and the snapshot export, which writes a final snapshot.
+     */
+    public static synchronized void shutdown() {
+        if (server != null) {
+            server.close();
+            server = null;
+        }
+        if (jfrMetrics != null) {
+            jfrMetrics.stop();
+            jfrMetrics = null;
+        }
+        if (snapshotExporter != null) {
+            snapshotExporter.close();
+            snapshotExporter = null;
+        }
+        if (registry != null) {
+            Metrics.removeRegistry(registry);
+            registry = null;
+        }
+    }
+
     public static PrometheusMeterRegistry getRegistry() {
         return registry;
     }
@@ -0,0 +1,104 @@
+package com.example.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy-hitters sketch (Metwally et al.): tracks approximate counts for at most
+ * {@code capacity} items. When a new item arrives and the sketch is full, the item with the
+ * smallest count is evicted and the newcomer inherits that count + 1, so an estimate never
+ * undercounts and overcounts by at most the recorded error.
+ *
+ * Any item with true frequency above N / capacity is guaranteed to be monitored, which makes it
+ * a good fit for bounding metric label cardinality: label the top K, fold the rest into "other".
+ *
+ * Eviction scans all slots, so keep the capacity small (tens of items).
+ */
+public class SpaceSavingSketch<T> {
+
+    private final int capacity;
+    private final Map<T, Counter> counters;
+
+    public SpaceSavingSketch(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be > 0");
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Counts one occurrence of the item and returns its estimated count.
+     */
+    public synchronized long offer(T item) {
+        Counter counter = counters.get(item);
+        if (counter != null) {
+            return ++counter.count;
+        }
+        if (counters.size() < capacity) {
+            counters.put(item, new Counter(1, 0));
+            return 1;
+        }
+
+        T minItem = null;
+        Counter min = null;
+        for (Map.Entry<T, Counter> entry : counters.entrySet()) {
+            if (min == null || entry.getValue().count < min.count) {
+                minItem = entry.getKey();
+                min = entry.getValue();
+            }
+        }
+        counters.remove(minItem);
+        // Reuse the evicted slot: the newcomer may have occurred up to min.count times unseen
+        min.error = min.count;
+        min.count++;
+        counters.put(item, min);
+        return min.count;
+    }
+
+    /**
+     * True when the item is currently among the {@code k} items with the highest estimated count.
+     */
+    public synchronized boolean isTopK(T item, int k) {
+        Counter counter = counters.get(item);
+        if (counter == null) return false;
+        int higher = 0;
+        for (Counter other : counters.values()) {
+            if (other.count > counter.count && ++higher >= k) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the {@code k} items with the highest estimated count, highest first.
+     */
+    public synchronized List<HeavyHitter<T>> topK(int k) {
+        List<HeavyHitter<T>> result = new ArrayList<>(counters.size());
+        counters.forEach((item, c) -> result.add(new HeavyHitter<>(item, c.count, c.error)));
+        result.sort((a, b) -> Long.compare(b.count(), a.count()));
+        return result.size() > k ? new ArrayList<>(result.subList(0, k)) : result;
+    }
+
+    public synchronized int size() {
+        return counters.size();
+    }
+
+    public synchronized void clear() {
+        counters.clear();
+    }
+
+    private static final class Counter {
+        long count;
+        long error;
+
+        Counter(long count, long error) {
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    /**
+     * An estimated count; the true count lies in [count - error, count].
+     */
+    public record HeavyHitter<T>(T item, long count, long error) {}
+}
@@ -0,0 +1,87 @@
+package com.example.util;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Reflective access to JDK-internal virtual thread state that has no public API.
+ *
+ * Needs the JVM flag:
+ * <pre>
+ *   --add-opens java.base/java.lang=ALL-UNNAMED
+ * </pre>
+ * Without it (or on a JDK whose internals differ) every lookup returns null,
+ * so callers must treat the information as optional.
+ */
+public final class VirtualThreadInternals {
+
+    private static final ForkJoinPool DEFAULT_SCHEDULER = lookupDefaultScheduler();
+    private static final Field CARRIER_THREAD = lookupCarrierThreadField();
+
+    private VirtualThreadInternals() {}
+
+    /**
+     * The ForkJoinPool that carries virtual threads by default, or null when it is not accessible.
+     */
+    public static ForkJoinPool defaultScheduler() {
+        return DEFAULT_SCHEDULER;
+    }
+
+    /**
+     * True when {@link #carrierOf(Thread)} reads the carrier directly (no string parsing).
+     */
+    public static boolean isCarrierAccessible() {
+        return CARRIER_THREAD != null;
+    }
+
+    /**
+     * The carrier the virtual thread is currently mounted on, or null when it is unmounted
+     * or the carrier field is not accessible.
+     */
+    public static Thread carrierOf(Thread virtualThread) {
+        if (CARRIER_THREAD == null) return null;
+        try {
+            return (Thread) CARRIER_THREAD.get(virtualThread);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Name of the carrier the virtual thread is mounted on, or null when unmounted.
+     * Works with or without --add-opens: without it, the name is parsed from
+     * {@code VirtualThread.toString()} ("VirtualThread[#21]/runnable@ForkJoinPool-1-worker-3").
+     */
+    public static String carrierNameOf(Thread virtualThread) {
+        if (CARRIER_THREAD != null) {
+            Thread carrier = carrierOf(virtualThread);
+            return carrier != null ? carrier.getName() : null;
+        }
+        String description = virtualThread.toString();
+        int at = description.lastIndexOf('@');
+        return at >= 0 ? description.substring(at + 1) : null;
+    }
+
+    private static Field lookupCarrierThreadField() {
+        try {
+            Field field = Class.forName("java.lang.VirtualThread").getDeclaredField("carrierThread");
+            field.setAccessible(true);
+            return field;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ForkJoinPool lookupDefaultScheduler() {
+        try {
+            Class<?> virtualThreadClass = Class.forName("java.lang.VirtualThread");
+            Field field = virtualThreadClass.getDeclaredField("DEFAULT_SCHEDULER");
+            field.setAccessible(true);
+            Object scheduler = field.get(null);
+            return scheduler instanceof ForkJoinPool pool ? pool : null;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // InaccessibleObjectException when java.lang is not opened
+            return null;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Exposes the state of the virtual thread scheduler (the carrier ForkJoinPool) as gauges,
+ * to tune {@code jdk.virtualThreadScheduler.parallelism} / {@code maxPoolSize} with data:
+ *
+ *  - virtual_thread_scheduler_parallelism:        target number of carriers
+ *  - virtual_thread_scheduler_pool_size:          carriers started, including compensation
+ *                                                 threads added while carriers are pinned/blocked
+ *  - virtual_thread_scheduler_active_threads:     carriers running or stealing a task
+ *  - virtual_thread_scheduler_running_threads:    carriers not blocked waiting to join or synchronize
+ *  - virtual_thread_scheduler_queued_submissions: virtual threads submitted from outside the pool
+ *  - virtual_thread_scheduler_queued_tasks:       virtual threads waiting in carrier work queues
+ *  - virtual_thread_scheduler_steals_total:       tasks stolen between carrier queues
+ *
+ * Values are read from the pool when the registry is scraped (no background sampling).
+ * The pool is reached through {@link VirtualThreadInternals}, so the JVM needs
+ * {@code --add-opens java.base/java.lang=ALL-UNNAMED}; without it nothing is registered.
+ */
+public class VirtualThreadSchedulerMetrics implements MeterBinder {
+
+    private final ForkJoinPool scheduler;
+
+    public VirtualThreadSchedulerMetrics() {
+        this(VirtualThreadInternals.defaultScheduler());
+    }
+
+    public VirtualThreadSchedulerMetrics(ForkJoinPool scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (scheduler == null) {
+            System.out.println("⚠️ Virtual thread scheduler not accessible, scheduler metrics disabled "
+                    + "(run with --add-opens java.base/java.lang=ALL-UNNAMED)");
+            return;
+        }
+
+        Gauge.builder("virtual_thread_scheduler_parallelism", scheduler, ForkJoinPool::getParallelism)
+                .description("Target parallelism of the virtual thread scheduler")
+                .register(registry);
+
+        Gauge.builder("virtual_thread_scheduler_pool_size", scheduler, ForkJoinPool::getPoolSize)
+                .description("Carrier threads started, including compensation threads")
+                .register(registry);
+
+        Gauge.builder("virtual_thread_scheduler_active_threads", scheduler, ForkJoinPool::getActiveThreadCount)
+                .description("Carrier threads currently running or stealing tasks")
+                .register(registry);
+
+        Gauge.builder("virtual_thread_scheduler_running_threads", scheduler, ForkJoinPool::getRunningThreadCount)
+                .description("Carrier threads not blocked waiting to join tasks or for synchronization")
+                .register(registry);
+
+        Gauge.builder("virtual_thread_scheduler_queued_submissions", scheduler, ForkJoinPool::getQueuedSubmissionCount)
+                .description("Virtual threads submitted to the scheduler but not yet picked up")
+                .register(registry);
+
+        Gauge.builder("virtual_thread_scheduler_queued_tasks", scheduler, ForkJoinPool::getQueuedTaskCount)
+                .description("Virtual threads waiting in carrier work queues")
+                .register(registry);
+
+        FunctionCounter.builder("virtual_thread_scheduler_steals_total", scheduler, ForkJoinPool::getStealCount)
+                .description("Tasks stolen from one carrier queue by another")
+                .register(registry);
+    }
+}
@@ -0,0 +1,294 @@
+package com.example.util;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Builds an exact live-virtual-thread timeline from jdk.VirtualThreadStart / jdk.VirtualThreadEnd.
+ *
+ * Unlike the Grafana "starts - ends" panel (sampled every scrape), every start and end is
+ * placed on a fixed-resolution time axis (1 ms by default), and starts are paired with ends
+ * by thread ID to build a lifetime histogram.
+ *
+ * Memory stays flat for tens of millions of threads:
+ *  - only threads that are alive at the current read position sit in a {@link LongLongHashMap}
+ *  - the timeline is an int delta per time slot, not a list of events
+ *  - lifetimes go into a fixed-size {@link LogHistogram}
+ *
+ * Threads already running when the recording started (end without start) are counted
+ * as live from the first slot; threads still running at the end stay live until the last one.
+ */
+public class VirtualThreadTimelineAnalyzer {
+
+    private static final Duration DEFAULT_RESOLUTION = Duration.ofMillis(1);
+
+    private final long resolutionNanos;
+
+    private VirtualThreadTimelineAnalyzer(Builder builder) {
+        this.resolutionNanos = builder.resolution.toNanos();
+    }
+
+    public Result analyze(Path jfrFile) throws IOException {
+        LongLongHashMap startByThreadId = new LongLongHashMap(64 * 1024);
+        LogHistogram lifetimes = new LogHistogram();
+        Timeline timeline = new Timeline();
+        long matched = 0;
+        long unmatchedEnds = 0;
+
+        try (RecordingFile recordingFile = new RecordingFile(jfrFile)) {
+            while (recordingFile.hasMoreEvents()) {
+                RecordedEvent event = recordingFile.readEvent();
+                String type = event.getEventType().getName();
+                boolean isStart = "jdk.VirtualThreadStart".equals(type);
+                if (!isStart && !"jdk.VirtualThreadEnd".equals(type)) continue;
+
+                long threadId = event.getLong("javaThreadId");
+                long timeNanos = toEpochNanos(event.getStartTime());
+
+                if (isStart) {
+                    startByThreadId.put(threadId, timeNanos, Long.MIN_VALUE);
+                    timeline.add(timeNanos, +1);
+                    continue;
+                }
+
+                long startNanos = startByThreadId.remove(threadId, Long.MIN_VALUE);
+                if (startNanos == Long.MIN_VALUE) {
+                    // Started before the recording: live from the beginning
+                    unmatchedEnds++;
+                    timeline.addAtOrigin(timeNanos, +1);
+                } else {
+                    matched++;
+                    lifetimes.record(timeNanos - startNanos);
+                }
+                timeline.add(timeNanos, -1);
+            }
+        }
+
+        return new Result(timeline.toLiveCounts(), timeline.originSlot * resolutionNanos, resolutionNanos,
+                lifetimes, matched, unmatchedEnds, startByThreadId.size());
+    }
+
+    private static long toEpochNanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    /**
+     * Growable array of +1/-1 deltas per time slot. Events are only roughly ordered in a
+     * recording, so a slot before the current origin shifts the array instead of failing.
+     */
+    private class Timeline {
+        int[] deltas = new int[16 * 1024];
+        long originSlot = Long.MIN_VALUE;
+        int length;
+
+        void add(long timeNanos, int delta) {
+            deltas[indexFor(timeNanos / resolutionNanos)] += delta;
+        }
+
+        // Adds the delta to the first slot, making sure the slot of timeNanos exists
+        void addAtOrigin(long timeNanos, int delta) {
+            indexFor(timeNanos / resolutionNanos);
+            deltas[0] += delta;
+        }
+
+        private int indexFor(long slot) {
+            if (originSlot == Long.MIN_VALUE) {
+                originSlot = slot;
+            }
+            if (slot < originSlot) {
+                int shift = Math.toIntExact(originSlot - slot);
+                ensureCapacity(length + shift);
+                System.arraycopy(deltas, 0, deltas, shift, length);
+                Arrays.fill(deltas, 0, shift, 0);
+                length += shift;
+                originSlot = slot;
+            }
+            int index = Math.toIntExact(slot - originSlot);
+            if (index >= length) {
+                ensureCapacity(index + 1);
+                length = index + 1;
+            }
+            return index;
+        }
+
+        private void ensureCapacity(int required) {
+            if (required > deltas.length) {
+                deltas = Arrays.copyOf(deltas, Math.max(required, deltas.length * 2));
+            }
+        }
+
+        int[] toLiveCounts() {
+            int[] live = new int[length];
+            int running = 0;
+            for (int i = 0; i < length; i++) {
+                running += deltas[i];
+                live[i] = running;
+            }
+            return live;
+        }
+    }
+
+    /**
+     * Timeline and lifetime statistics of one recording.
+     *
+     * @param liveThreads      live virtual threads per slot, slot 0 starts at originEpochNanos
+     * @param lifetimesNanos   start-to-end duration of every matched thread
+     * @param matchedThreads   threads with both a start and an end event
+     * @param unmatchedEnds    threads that ended but started before the recording
+     * @param stillAlive       threads that started but did not end before the recording stopped
+     */
+    public record Result(int[] liveThreads,
+                         long originEpochNanos,
+                         long resolutionNanos,
+                         LogHistogram lifetimesNanos,
+                         long matchedThreads,
+                         long unmatchedEnds,
+                         long stillAlive) {
+
+        public int peakLiveThreads() {
+            int peak = 0;
+            for (int live : liveThreads) peak = Math.max(peak, live);
+            return peak;
+        }
+
+        public void printSummary() {
+            System.out.println("\n🧵 Virtual Thread Timeline");
+            System.out.println("==========================");
+            System.out.printf("Timeline span       : %d ms (%d slots of %.3f ms)%n",
+                    liveThreads.length * resolutionNanos / 1_000_000, liveThreads.length, resolutionNanos / 1_000_000.0);
+            System.out.printf("Peak live threads   : %d%n", peakLiveThreads());
+            System.out.printf("Matched threads     : %d%n", matchedThreads);
+            System.out.printf("Ended, not started  : %d%n", unmatchedEnds);
+            System.out.printf("Started, not ended  : %d%n", stillAlive);
+            if (lifetimesNanos.count() > 0) {
+                System.out.printf("Lifetime p50/p90/p99/max: %.3f / %.3f / %.3f / %.3f ms%n",
+                        lifetimesNanos.percentile(50) / 1_000_000.0,
+                        lifetimesNanos.percentile(90) / 1_000_000.0,
+                        lifetimesNanos.percentile(99) / 1_000_000.0,
+                        lifetimesNanos.max() / 1_000_000.0);
+            }
+        }
+
+        /**
+         * Writes the timeline (one row per change) and the lifetime histogram as CSV.
+         */
+        public void writeCsv(Path timelineCsv, Path lifetimeCsv) throws IOException {
+            createParent(timelineCsv);
+            try (BufferedWriter writer = Files.newBufferedWriter(timelineCsv, StandardCharsets.UTF_8)) {
+                writer.write("offset_ms,epoch_ms,live_threads");
+                writer.newLine();
+                forEachChange((offsetNanos, live) -> {
+                    writer.write(formatMillis(offsetNanos) + "," + (originEpochNanos + offsetNanos) / 1_000_000 + "," + live);
+                    writer.newLine();
+                });
+            }
+
+            createParent(lifetimeCsv);
+            try (BufferedWriter writer = Files.newBufferedWriter(lifetimeCsv, StandardCharsets.UTF_8)) {
+                writer.write("lower_ns,upper_ns,count");
+                writer.newLine();
+                IOException[] failure = new IOException[1];
+                lifetimesNanos.forEachBucket((lower, upper, count) -> {
+                    if (failure[0] != null) return;
+                    try {
+                        writer.write(lower + "," + upper + "," + count);
+                        writer.newLine();
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                });
+                if (failure[0] != null) throw failure[0];
+            }
+            System.out.println("💾 Timeline CSV: " + timelineCsv.toAbsolutePath());
+            System.out.println("💾 Lifetime CSV: " + lifetimeCsv.toAbsolutePath());
+        }
+
+        /**
+         * Writes timeline and lifetime histogram as a single JSON document.
+         */
+        public void writeJson(Path jsonFile) throws IOException {
+            createParent(jsonFile);
+            try (BufferedWriter writer = Files.newBufferedWriter(jsonFile, StandardCharsets.UTF_8)) {
+                writer.write("{\"originEpochNanos\":" + originEpochNanos
+                        + ",\"resolutionNanos\":" + resolutionNanos
+                        + ",\"peakLiveThreads\":" + peakLiveThreads()
+                        + ",\"matchedThreads\":" + matchedThreads
+                        + ",\"unmatchedEnds\":" + unmatchedEnds
+                        + ",\"stillAlive\":" + stillAlive
+                        + ",\"timeline\":[");
+                boolean[] first = {true};
+                forEachChange((offsetNanos, live) -> {
+                    writer.write((first[0] ? "" : ",") + "[" + formatMillis(offsetNanos) + "," + live + "]");
+                    first[0] = false;
+                });
+                writer.write("],\"lifetimeNanos\":{\"count\":" + lifetimesNanos.count()
+                        + ",\"p50\":" + lifetimesNanos.percentile(50)
+                        + ",\"p90\":" + lifetimesNanos.percentile(90)
+                        + ",\"p99\":" + lifetimesNanos.percentile(99)
+                        + ",\"max\":" + lifetimesNanos.max()
+                        + ",\"buckets\":[");
+                StringBuilder buckets = new StringBuilder();
+                lifetimesNanos.forEachBucket((lower, upper, count) ->
+                        buckets.append(buckets.isEmpty() ? "" : ",")
+                                .append('[').append(lower).append(',').append(upper).append(',').append(count).append(']'));
+                writer.write(buckets.toString());
+                writer.write("]}}");
+                writer.newLine();
+            }
+            System.out.println("💾 Timeline JSON: " + jsonFile.toAbsolutePath());
+        }
+
+        // Emits only the slots where the live count changes
+        private void forEachChange(ChangeWriter writer) throws IOException {
+            int previous = Integer.MIN_VALUE;
+            for (int i = 0; i < liveThreads.length; i++) {
+                if (liveThreads[i] != previous) {
+                    writer.write(i * resolutionNanos, liveThreads[i]);
+                    previous = liveThreads[i];
+                }
+            }
+        }
+
+        private static String formatMillis(long nanos) {
+            return nanos % 1_000_000 == 0 ? Long.toString(nanos / 1_000_000) : String.valueOf(nanos / 1_000_000.0);
+        }
+
+        private static void createParent(Path file) throws IOException {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+        }
+
+        @FunctionalInterface
+        private interface ChangeWriter {
+            void write(long offsetNanos, int live) throws IOException;
+        }
+    }
+
+    // ======================
+    // Builder
+    // ======================
+    public static class Builder {
+        private Duration resolution = DEFAULT_RESOLUTION;
+
+        public Builder resolution(Duration resolution) {
+            this.resolution = resolution;
+            return this;
+        }
+
+        public VirtualThreadTimelineAnalyzer build() {
+            if (resolution.isZero() || resolution.isNegative()) {
+                throw new IllegalArgumentException("Resolution must be positive");
+            }
+            return new VirtualThreadTimelineAnalyzer(this);
+        }
+    }
+}
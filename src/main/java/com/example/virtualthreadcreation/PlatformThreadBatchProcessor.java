@@ -1,5 +1,8 @@
 package com.example.virtualthreadcreation;
 
+import com.example.util.InstrumentedExecutorService;
+import com.example.util.PrometheusMetricsInitializer;
+
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -17,19 +20,26 @@ public class PlatformThreadBatchProcessor {
         System.out.println("=== Platform Thread Batch Processor Started ===");
         System.out.println("Available processors: " + Runtime.getRuntime().availableProcessors());
 
-        long start = System.nanoTime();
-        ExecutorService executor = Executors.newFixedThreadPool(POOL_SIZE);
+        // Opt-in (-Dmetrics.enabled=true): serves the executor meters on :8081/metrics during the run.
+        // The JFR bridge it starts costs CPU, so leave it off when comparing platform and virtual timings.
+        boolean metrics = PrometheusMetricsInitializer.initializeIfEnabled();
+        try {
+            long start = System.nanoTime();
+            ExecutorService executor = InstrumentedExecutorService.wrap(Executors.newFixedThreadPool(POOL_SIZE), "platform-batch");
 
-        for (int i = 0; i < TASK_COUNT; i++) {
-            int taskId = i;
-            executor.submit(() -> performIOBoundTask(taskId));
-        }
+            for (int i = 0; i < TASK_COUNT; i++) {
+                int taskId = i;
+                executor.submit(() -> performIOBoundTask(taskId));
+            }
 
-        executor.shutdown();
-        executor.awaitTermination(10, TimeUnit.MINUTES);
-        long end = System.nanoTime();
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.MINUTES);
+            long end = System.nanoTime();
 
-        System.out.printf("=== Platform Thread Batch Processor Completed in %d ms ===%n", (end - start) / 1_000_000);
+            System.out.printf("=== Platform Thread Batch Processor Completed in %d ms ===%n", (end - start) / 1_000_000);
+        } finally {
+            if (metrics) PrometheusMetricsInitializer.shutdown();
+        }
     }
 
     private static void performIOBoundTask(int taskId) {
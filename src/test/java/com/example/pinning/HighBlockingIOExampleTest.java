@@ -1,4 +1,5 @@
 package com.example.pinning;
+import com.example.util.Phase;
 import me.escoffier.loom.loomunit.LoomUnitExtension;
 import me.escoffier.loom.loomunit.ShouldNotPin;
 import me.escoffier.loom.loomunit.ShouldPin;
@@ -33,12 +34,14 @@ public class HighBlockingIOExampleTest {
             final int taskId = i;
             executor.submit(() -> {
                 try {
-                    doCpuWork(300);
-                    waitForTask(taskQueue, taskId); // YELLOW - Monitor wait (5%)
-                    synchronizedWork(sharedLock, taskId); // SALMON - Synchronized block (10%)
-                    blockingNetworkCall(); // RED - Blocking I/O (70%)
-                    doCpuWork(600); // GREEN - Final CPU (10%)
-                    System.out.println("Task " + taskId + " completed.");
+                    Phase.run("task", () -> {
+                        Phase.run("cpu", () -> doCpuWork(300));
+                        Phase.run("queue", () -> waitForTask(taskQueue, taskId)); // YELLOW - Monitor wait (5%)
+                        Phase.run("sync", () -> synchronizedWork(sharedLock, taskId)); // SALMON - Synchronized block (10%)
+                        Phase.run("io", () -> blockingNetworkCall()); // RED - Blocking I/O (70%)
+                        Phase.run("cpu", () -> doCpuWork(600)); // GREEN - Final CPU (10%)
+                        System.out.println("Task " + taskId + " completed.");
+                    });
                 } catch (Exception e) {
                     System.out.println("Task " + taskId + " failed: " + e.getMessage());
                 }
@@ -51,6 +54,8 @@ public class HighBlockingIOExampleTest {
         long end = System.currentTimeMillis();
         System.out.println("Total time: " + (end - start) + " ms");
         System.out.println("=== EXECUTION COMPLETE ===");
+        // Where task time actually went (the colour shares above are the intended split)
+        Phase.printSummary();
 
     }
 
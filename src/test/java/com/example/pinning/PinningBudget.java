@@ -0,0 +1,36 @@
+package com.example.pinning;
+
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Fails the test when virtual thread pinning during the test exceeds the budget.
+ * Pinning is measured with jdk.VirtualThreadPinned events (see {@link PinningBudgetExtension}).
+ *
+ * <pre>
+ *   &#64;Test
+ *   &#64;PinningBudget(maxEvents = 0)                  // hot path must never pin
+ *   &#64;PinningBudget(maxTotalPinnedMillis = 50)      // some pinning is tolerated, but not much
+ * </pre>
+ * Both limits default to "no limit"; set at least one, a budget without any is rejected.
+ * On a class, the budget applies to every test method without its own annotation.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@ExtendWith(PinningBudgetExtension.class)
+public @interface PinningBudget {
+
+    /**
+     * Maximum number of pinned events; negative means no limit.
+     */
+    int maxEvents() default -1;
+
+    /**
+     * Maximum total pinned time in milliseconds; negative means no limit.
+     */
+    long maxTotalPinnedMillis() default -1;
+}
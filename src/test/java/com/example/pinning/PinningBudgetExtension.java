@@ -0,0 +1,106 @@
+package com.example.pinning;
+
+import com.example.util.JFRStackUtil;
+import jdk.jfr.consumer.RecordingStream;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * JUnit 5 extension behind {@link PinningBudget}: records jdk.VirtualThreadPinned events with a
+ * RecordingStream while each test runs, then checks them against the budget.
+ *
+ * On failure the message lists the pinning call sites (top application frame) with their
+ * event count, total and max pinned time, heaviest first, e.g.:
+ * <pre>
+ *   Pinning budget exceeded: 3 events (max 0), 30.2 ms pinned (no limit)
+ *     3x  total 30.2 ms  max 10.4 ms  com.example.pinning.VirtualThreadPinning.simulateBlockingWithWait:32
+ * </pre>
+ */
+public class PinningBudgetExtension implements BeforeEachCallback, AfterEachCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE =
+            ExtensionContext.Namespace.create(PinningBudgetExtension.class);
+
+    @Override
+    public void beforeEach(ExtensionContext context) {
+        PinningBudget budget = findBudget(context);
+        if (budget != null && budget.maxEvents() < 0 && budget.maxTotalPinnedMillis() < 0) {
+            throw new IllegalArgumentException("@PinningBudget on " + context.getDisplayName()
+                    + " sets no limit: give maxEvents and/or maxTotalPinnedMillis");
+        }
+
+        Queue<PinnedSample> samples = new ConcurrentLinkedQueue<>();
+        RecordingStream stream = new RecordingStream();
+        stream.enable("jdk.VirtualThreadPinned").withStackTrace().withThreshold(Duration.ZERO);
+        stream.onEvent("jdk.VirtualThreadPinned", event -> samples.add(new PinnedSample(
+                JFRStackUtil.topApplicationFrame(event.getStackTrace()), event.getDuration().toNanos())));
+        stream.startAsync();
+
+        ExtensionContext.Store store = context.getStore(NAMESPACE);
+        store.put(RecordingStream.class, stream);
+        store.put(Queue.class, samples);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void afterEach(ExtensionContext context) {
+        ExtensionContext.Store store = context.getStore(NAMESPACE);
+        RecordingStream stream = store.remove(RecordingStream.class, RecordingStream.class);
+        Queue<PinnedSample> samples = store.remove(Queue.class, Queue.class);
+        if (stream == null) return;
+
+        // stop() delivers every event recorded so far before returning
+        stream.stop();
+        stream.close();
+
+        PinningBudget budget = findBudget(context);
+        if (budget == null) return;
+
+        long events = samples.size();
+        long totalNanos = samples.stream().mapToLong(PinnedSample::durationNanos).sum();
+        boolean tooManyEvents = budget.maxEvents() >= 0 && events > budget.maxEvents();
+        boolean tooLong = budget.maxTotalPinnedMillis() >= 0
+                && totalNanos > budget.maxTotalPinnedMillis() * 1_000_000L;
+        if (tooManyEvents || tooLong) {
+            throw new AssertionError(failureMessage(budget, List.copyOf(samples), totalNanos));
+        }
+    }
+
+    private static PinningBudget findBudget(ExtensionContext context) {
+        PinningBudget budget = context.getRequiredTestMethod().getAnnotation(PinningBudget.class);
+        return budget != null ? budget : context.getRequiredTestClass().getAnnotation(PinningBudget.class);
+    }
+
+    private static String failureMessage(PinningBudget budget, List<PinnedSample> samples, long totalNanos) {
+        // site -> {events, totalNanos, maxNanos}
+        Map<String, long[]> bySite = new HashMap<>();
+        for (PinnedSample sample : samples) {
+            long[] stats = bySite.computeIfAbsent(sample.site(), k -> new long[3]);
+            stats[0]++;
+            stats[1] += sample.durationNanos();
+            stats[2] = Math.max(stats[2], sample.durationNanos());
+        }
+
+        StringBuilder message = new StringBuilder(String.format(
+                "Pinning budget exceeded: %d events (%s), %.1f ms pinned (%s)",
+                samples.size(),
+                budget.maxEvents() >= 0 ? "max " + budget.maxEvents() : "no limit",
+                totalNanos / 1_000_000.0,
+                budget.maxTotalPinnedMillis() >= 0 ? "max " + budget.maxTotalPinnedMillis() + " ms" : "no limit"));
+        bySite.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue()[1], a.getValue()[1]))
+                .forEach(e -> message.append(String.format("%n  %4dx  total %.1f ms  max %.1f ms  %s",
+                        e.getValue()[0], e.getValue()[1] / 1_000_000.0, e.getValue()[2] / 1_000_000.0, e.getKey())));
+        return message.toString();
+    }
+
+    private record PinnedSample(String site, long durationNanos) {}
+}
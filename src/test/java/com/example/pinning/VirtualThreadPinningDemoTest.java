@@ -14,6 +14,8 @@ import java.util.concurrent.TimeUnit;
  * Tests for VirtualThreadPinningDemo using LoomUnit.
  *
  * LoomUnit runs these test methods in virtual threads to check for pinning.
+ * {@link PinningBudget} additionally bounds how much pinning is allowed and names the
+ * offending call sites when the budget is exceeded.
  */
 @ExtendWith(LoomUnitExtension.class)
 public class VirtualThreadPinningDemoTest {
@@ -23,8 +25,8 @@ public class VirtualThreadPinningDemoTest {
      * and performs a blocking call (`Thread.sleep`).
      */
     @Test
-    //@ShouldPin
-    @ShouldNotPin
+    @ShouldPin
+    @PinningBudget(maxEvents = 1, maxTotalPinnedMillis = 15_000) // the one sleep inside synchronized
     void testPinningWithSynchronized() {
         ExecutorService vtExecutor = Executors.newVirtualThreadPerTaskExecutor();
         vtExecutor.submit(VirtualThreadPinning::simulateBlockingWorkWithSynchronized);
@@ -41,6 +43,7 @@ public class VirtualThreadPinningDemoTest {
     }
     @Test
     @ShouldNotPin
+    @PinningBudget(maxEvents = 0)
     void testPinningWithReentrantlock() {
         ExecutorService vtExecutor = Executors.newVirtualThreadPerTaskExecutor();
         vtExecutor.submit(VirtualThreadPinning::simulateBlockingWithReEntrantLock);
@@ -0,0 +1,108 @@
+package com.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link LogHistogram}: bucket layout, percentile accuracy and merging.
+ */
+public class LogHistogramTest {
+
+    // 32 sub-buckets per power of two: a bucket is at most 1/32 of its lower bound wide
+    private static final double MAX_RELATIVE_ERROR = 1.0 / 32;
+
+    @Test
+    void bucketsTileTheRangeWithoutGaps() {
+        for (int index = 1; index < 59 * 32; index++) {
+            assertEquals(LogHistogram.upperBound(index - 1) + 1, LogHistogram.lowerBound(index),
+                    "gap before bucket " + index);
+        }
+        assertEquals(Long.MAX_VALUE, LogHistogram.upperBound(59 * 32 - 1));
+    }
+
+    @Test
+    void valuesMapIntoTheirBucketBounds() {
+        long[] edges = {0, 1, 31, 32, 33, 63, 64, 65, 1023, 1024, 1025, 1_000_000, Long.MAX_VALUE};
+        for (long value : edges) {
+            int index = LogHistogram.indexOf(value);
+            assertTrue(LogHistogram.lowerBound(index) <= value && value <= LogHistogram.upperBound(index),
+                    value + " outside bucket " + index);
+        }
+        // Small values are exact
+        for (long value = 0; value < 32; value++) {
+            assertEquals(value, LogHistogram.lowerBound(LogHistogram.indexOf(value)));
+            assertEquals(value, LogHistogram.upperBound(LogHistogram.indexOf(value)));
+        }
+    }
+
+    @Test
+    void percentilesAreWithinRelativeError() {
+        Random random = new Random(42);
+        long[] values = new long[100_000];
+        LogHistogram histogram = new LogHistogram();
+        for (int i = 0; i < values.length; i++) {
+            // Log-uniform between 1 µs and 1 s in nanoseconds
+            values[i] = (long) Math.pow(10, 3 + random.nextDouble() * 6);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double p : new double[]{1, 50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(p / 100 * values.length) - 1];
+            long reported = histogram.percentile(p);
+            assertTrue(reported >= exact, "p" + p + " reported below exact value");
+            assertTrue(reported <= exact * (1 + MAX_RELATIVE_ERROR),
+                    "p" + p + ": " + reported + " vs exact " + exact);
+        }
+        assertEquals(values[0], histogram.min());
+        assertEquals(values[values.length - 1], histogram.max());
+        assertEquals(values[values.length - 1], histogram.percentile(100));
+    }
+
+    @Test
+    void percentilesAreClampedToRecordedRange() {
+        LogHistogram histogram = new LogHistogram();
+        histogram.record(1_000_000);
+        assertEquals(1_000_000, histogram.percentile(0));
+        assertEquals(1_000_000, histogram.percentile(50));
+        assertEquals(1_000_000, histogram.percentile(100));
+    }
+
+    @Test
+    void mergeEqualsRecordingEverythingInOne() {
+        LogHistogram a = new LogHistogram();
+        LogHistogram b = new LogHistogram();
+        LogHistogram all = new LogHistogram();
+        for (long value = 1; value <= 10_000; value++) {
+            (value % 3 == 0 ? a : b).record(value * 37);
+            all.record(value * 37);
+        }
+        a.merge(b);
+        a.merge(new LogHistogram()); // merging an empty histogram changes nothing
+
+        assertEquals(all.count(), a.count());
+        assertEquals(all.sum(), a.sum());
+        assertEquals(all.min(), a.min());
+        assertEquals(all.max(), a.max());
+        for (double p : new double[]{0, 25, 50, 75, 99, 100}) {
+            assertEquals(all.percentile(p), a.percentile(p));
+        }
+    }
+
+    @Test
+    void emptyAndNegativeValues() {
+        LogHistogram histogram = new LogHistogram();
+        assertEquals(0, histogram.percentile(99));
+        assertEquals(0, histogram.max());
+        histogram.record(-5); // clamped to 0
+        assertEquals(0, histogram.max());
+        assertEquals(1, histogram.count());
+        histogram.reset();
+        assertEquals(0, histogram.count());
+    }
+}
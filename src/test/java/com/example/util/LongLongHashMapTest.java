@@ -0,0 +1,104 @@
+package com.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link LongLongHashMap}: probing on collisions, resizing and backward-shift removal.
+ */
+public class LongLongHashMapTest {
+
+    private static final long MISSING = -1;
+
+    @Test
+    void putGetAndReplace() {
+        LongLongHashMap map = new LongLongHashMap();
+        assertEquals(MISSING, map.put(42, 1, MISSING));
+        assertEquals(1, map.put(42, 2, MISSING));
+        assertEquals(2, map.get(42, MISSING));
+        assertEquals(MISSING, map.get(43, MISSING));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void zeroKeyIsStoredAside() {
+        LongLongHashMap map = new LongLongHashMap();
+        assertFalse(map.containsKey(0));
+        map.put(0, 7, MISSING);
+        assertTrue(map.containsKey(0));
+        assertEquals(7, map.get(0, MISSING));
+        assertEquals(1, map.size());
+        assertEquals(7, map.remove(0, MISSING));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void collidingKeysSurviveResize() {
+        // Capacity 8 at the start: sequential keys collide and the map doubles several times
+        LongLongHashMap map = new LongLongHashMap(4);
+        for (long key = 1; key <= 10_000; key++) {
+            map.put(key, key * 10, MISSING);
+        }
+        assertEquals(10_000, map.size());
+        for (long key = 1; key <= 10_000; key++) {
+            assertEquals(key * 10, map.get(key, MISSING));
+        }
+    }
+
+    @Test
+    void removeKeepsProbeChainsReachable() {
+        // A full small table has long probe chains; every removal must shift the chain back
+        LongLongHashMap map = new LongLongHashMap(4);
+        for (long key = 1; key <= 64; key++) {
+            map.put(key, key, MISSING);
+        }
+        for (long key = 1; key <= 64; key += 2) {
+            assertEquals(key, map.remove(key, MISSING));
+        }
+        for (long key = 1; key <= 64; key++) {
+            assertEquals(key % 2 == 0 ? key : MISSING, map.get(key, MISSING));
+        }
+        assertEquals(32, map.size());
+    }
+
+    @Test
+    void matchesHashMapUnderRandomOperations() {
+        Random random = new Random(1234);
+        LongLongHashMap map = new LongLongHashMap(4);
+        Map<Long, Long> reference = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            long key = random.nextInt(2_000) - 100; // includes 0 and negative keys
+            if (random.nextInt(3) == 0) {
+                Long expected = reference.remove(key);
+                assertEquals(expected == null ? MISSING : expected, map.remove(key, MISSING));
+            } else {
+                long value = random.nextLong() & Long.MAX_VALUE;
+                Long expected = reference.put(key, value);
+                assertEquals(expected == null ? MISSING : expected, map.put(key, value, MISSING));
+            }
+        }
+        assertEquals(reference.size(), map.size());
+        reference.forEach((key, value) -> assertEquals(value, map.get(key, MISSING)));
+
+        Map<Long, Long> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(reference, visited);
+    }
+
+    @Test
+    void clearEmptiesTheMap() {
+        LongLongHashMap map = new LongLongHashMap();
+        map.put(0, 1, MISSING);
+        map.put(5, 1, MISSING);
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(5));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link Phase}: self time, nesting, and closing out of order.
+ * Phase statistics are global, so every test uses its own phase names.
+ */
+public class PhaseTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void selfTimeExcludesNestedPhases() {
+        Phase.run("self-outer", () -> {
+            sleep(20);
+            Phase.run("self-inner", () -> sleep(100));
+        });
+
+        LogHistogram outer = Phase.histogram("self-outer");
+        LogHistogram inner = Phase.histogram("self-inner");
+        assertEquals(1, outer.count());
+        assertEquals(1, inner.count());
+        assertTrue(inner.sum() >= 100 * MILLIS, "inner " + inner.sum());
+        // The outer phase keeps only its own 20 ms, not the 100 ms spent in the inner one
+        assertTrue(outer.sum() >= 19 * MILLIS && outer.sum() < 100 * MILLIS, "outer " + outer.sum());
+    }
+
+    @Test
+    void repeatedPhasesAccumulateAndUnknownPhasesAreEmpty() {
+        for (int i = 0; i < 3; i++) {
+            Phase.run("repeat-task", () -> Phase.run("repeat-step", () -> sleep(1)));
+        }
+        assertEquals(3, Phase.histogram("repeat-task").count());
+        assertEquals(3, Phase.histogram("repeat-step").count());
+        assertEquals(0, Phase.histogram("repeat-never-ran").count());
+    }
+
+    @Test
+    void runRecordsAndRestoresTheParentWhenTheWorkThrows() {
+        try (Phase outer = Phase.enter("throw-outer")) {
+            assertThrows(IOException.class, () -> Phase.run("throw-inner", () -> {
+                throw new IOException("boom");
+            }));
+            // The inner phase is closed, so the outer one is current again and closes normally
+            assertEquals("throw-outer", outer.name());
+        }
+        assertEquals(1, Phase.histogram("throw-inner").count());
+        assertEquals(1, Phase.histogram("throw-outer").count());
+    }
+
+    @Test
+    void closingOutOfOrderThrowsAndLeavesTheStackIntact() {
+        Phase outer = Phase.enter("order-outer");
+        Phase inner = Phase.enter("order-inner");
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, outer::close);
+        assertTrue(e.getMessage().contains("'order-inner' is still open"), e.getMessage());
+        assertEquals(0, Phase.histogram("order-outer").count());
+
+        inner.close();
+        outer.close();
+        outer.close(); // closing twice is a no-op
+        assertEquals(1, Phase.histogram("order-inner").count());
+        assertEquals(1, Phase.histogram("order-outer").count());
+    }
+
+    @Test
+    void closingOnAnotherThreadThrows() throws Exception {
+        Phase phase = Phase.enter("thread-phase");
+        try {
+            Throwable[] failure = new Throwable[1];
+            Thread other = Thread.ofVirtual().start(() -> {
+                try {
+                    phase.close();
+                } catch (Throwable t) {
+                    failure[0] = t;
+                }
+            });
+            other.join();
+            assertTrue(failure[0] instanceof IllegalStateException, String.valueOf(failure[0]));
+        } finally {
+            phase.close();
+        }
+        assertEquals(1, Phase.histogram("thread-phase").count());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
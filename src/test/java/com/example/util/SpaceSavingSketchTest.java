@@ -0,0 +1,94 @@
+package com.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for {@link SpaceSavingSketch}: exact counts below capacity, eviction, and error bounds.
+ */
+public class SpaceSavingSketchTest {
+
+    @Test
+    void countsExactlyWhileBelowCapacity() {
+        SpaceSavingSketch<String> sketch = new SpaceSavingSketch<>(4);
+        sketch.offer("a");
+        sketch.offer("a");
+        sketch.offer("b");
+        List<SpaceSavingSketch.HeavyHitter<String>> top = sketch.topK(4);
+        assertEquals(2, top.size());
+        assertEquals(new SpaceSavingSketch.HeavyHitter<>("a", 2, 0), top.get(0));
+        assertEquals(new SpaceSavingSketch.HeavyHitter<>("b", 1, 0), top.get(1));
+    }
+
+    @Test
+    void evictsTheMinimumAndInheritsItsCount() {
+        SpaceSavingSketch<String> sketch = new SpaceSavingSketch<>(2);
+        sketch.offer("a");
+        sketch.offer("a");
+        sketch.offer("a");
+        sketch.offer("b");
+        // Full: "c" replaces "b" (count 1) and may have occurred once unseen
+        assertEquals(2, sketch.offer("c"));
+        assertEquals(2, sketch.size());
+
+        Map<String, SpaceSavingSketch.HeavyHitter<String>> byItem = new HashMap<>();
+        sketch.topK(2).forEach(h -> byItem.put(h.item(), h));
+        assertFalse(byItem.containsKey("b"));
+        assertEquals(new SpaceSavingSketch.HeavyHitter<>("a", 3, 0), byItem.get("a"));
+        assertEquals(new SpaceSavingSketch.HeavyHitter<>("c", 2, 1), byItem.get("c"));
+    }
+
+    @Test
+    void estimatesBoundTheTrueCount() {
+        int capacity = 16;
+        SpaceSavingSketch<Integer> sketch = new SpaceSavingSketch<>(capacity);
+        Map<Integer, Long> exact = new HashMap<>();
+        Random random = new Random(7);
+        int n = 100_000;
+        for (int i = 0; i < n; i++) {
+            // Skewed stream: a few heavy items and a long tail of rare ones
+            int item = random.nextInt(10) < 6 ? random.nextInt(5) : 100 + random.nextInt(10_000);
+            sketch.offer(item);
+            exact.merge(item, 1L, Long::sum);
+        }
+
+        for (SpaceSavingSketch.HeavyHitter<Integer> hitter : sketch.topK(capacity)) {
+            long trueCount = exact.get(hitter.item());
+            assertTrue(hitter.count() >= trueCount, "undercount for " + hitter.item());
+            assertTrue(hitter.count() - hitter.error() <= trueCount, "error bound violated for " + hitter.item());
+            assertTrue(hitter.error() <= n / capacity, "error above N / capacity for " + hitter.item());
+        }
+        // Every item above N / capacity is guaranteed to be monitored, and so in the top 5 here
+        for (int heavy = 0; heavy < 5; heavy++) {
+            assertTrue(exact.get(heavy) > n / capacity);
+            assertTrue(sketch.isTopK(heavy, 5), "heavy item " + heavy + " not in top 5");
+        }
+        assertFalse(sketch.isTopK(-1, 5));
+    }
+
+    @Test
+    void topKIsSortedAndTruncated() {
+        SpaceSavingSketch<String> sketch = new SpaceSavingSketch<>(8);
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j <= i; j++) sketch.offer("item-" + i);
+        }
+        List<SpaceSavingSketch.HeavyHitter<String>> top = sketch.topK(3);
+        assertEquals(List.of("item-4", "item-3", "item-2"), top.stream().map(SpaceSavingSketch.HeavyHitter::item).toList());
+        sketch.clear();
+        assertEquals(0, sketch.size());
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSavingSketch<String>(0));
+    }
+}